@@ -0,0 +1,79 @@
+package de.lucky44.raycasting.benchmark;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.world.World;
+import de.lucky44.raycasting.rendering.HeadlessRenderer;
+import de.lucky44.raycasting.scenes.SinglePlayerScene;
+import de.lucky44.raycasting.tools.WorldGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.event.KeyEvent;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures whole frames: the SinglePlayerScene (debug-map, raycasting, entities and the final blit) and the bare HeadlessRenderer
+ * @author Nick Balischewski
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class FrameBenchmark {
+
+    @Param({"32", "128", "512"})
+    public int size;
+
+    @Param({"16"})
+    public int polyWalls;
+
+    @Param({"0", "64"})
+    public int entities;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private String directory;
+    private SinglePlayerScene scene;
+    private HeadlessRenderer headless;
+    private BufferedImage frame;
+    private Graphics2D g;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        directory = WorldGenerator.generateTemporary(WorldGenerator.Layout.ARENA, size, polyWalls, entities, 3);
+        scene = new SinglePlayerScene(directory);
+        scene.OnLoad();
+
+        headless = new HeadlessRenderer(new World(directory));
+        headless.setParallel(parallel);
+
+        if(parallel != Const.PARALLEL_RAYCASTING)
+            scene.OnKeyDown(new KeyEvent(new Canvas(), KeyEvent.KEY_PRESSED, 0, 0, KeyEvent.VK_6, '6'));
+
+        frame = new BufferedImage(Const.WIDTH, Const.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        g = frame.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        g.dispose();
+        //otherwise deleting data.m would make the scene load the world again
+        scene.getWorld().stopWatching();
+        WorldGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public BufferedImage frame(){
+        scene.Draw(g);
+        return frame;
+    }
+
+    @Benchmark
+    public int[] headlessFrame(){
+        return headless.renderFrame(headless.getWorld().getPlayerStartPos(), 0.7);
+    }
+}
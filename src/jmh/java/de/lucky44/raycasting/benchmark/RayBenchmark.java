@@ -0,0 +1,65 @@
+package de.lucky44.raycasting.benchmark;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.rendering.Camera;
+import de.lucky44.raycasting.engine.world.World;
+import de.lucky44.raycasting.rendering.renderables.Ray;
+import de.lucky44.raycasting.tools.WorldGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures Ray.calculateRay, one operation is a single ray (every invocation traces the next screen column)
+ * @author Nick Balischewski
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RayBenchmark {
+
+    @Param({"32", "128", "512"})
+    public int size;
+
+    @Param({"0", "64", "1024"})
+    public int polyWalls;
+
+    @Param({"ARENA", "MAZE"})
+    public WorldGenerator.Layout layout;
+
+    private String directory;
+    private World world;
+    private Ray[] rays;
+    private final Camera camera = new Camera(Const.FOV, Const.RAYCASTER_RESOLUTION);
+    private int column = 0;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        directory = WorldGenerator.generateTemporary(layout, size, polyWalls, 0, 3);
+        world = new World(directory);
+
+        rays = new Ray[Const.RAYCASTER_RESOLUTION];
+        for(int i = 0; i < rays.length; i++){
+            rays[i] = new Ray(i);
+        }
+
+        camera.update(world.getPlayerStartPos(), 0.7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        WorldGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public double calculateRay(){
+        column = column + 1 == rays.length ? 0 : column + 1;
+
+        Ray ray = rays[column];
+        ray.calculateRay(world, world.getPlayerStartPos(), camera.rayDirX(column), camera.rayDirY(column));
+        return ray.distanceToPlayer;
+    }
+}
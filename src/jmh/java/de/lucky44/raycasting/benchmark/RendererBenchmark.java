@@ -0,0 +1,58 @@
+package de.lucky44.raycasting.benchmark;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.rendering.Renderer;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
+import de.lucky44.raycasting.tools.WorldGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the raw buffer operations of the Renderer: drawing a (partly transparent) sprite and clearing the buffers
+ * @author Nick Balischewski
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RendererBenchmark {
+
+    @Param({"64", "256", "700"})
+    public int spriteSize;
+
+    private Renderer renderer;
+    private SpriteFrame sprite;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        renderer = new Renderer();
+        renderer.setDepthRange(32);
+
+        //every fourth texel is transparent, like the outline of a sprite
+        Random random = new Random(WorldGenerator.DEFAULT_SEED);
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_ARGB);
+        for(int y = 0; y < 64; y++){
+            for(int x = 0; x < 64; x++){
+                int alpha = random.nextInt(4) == 0 ? 0x00 : 0xFF;
+                image.setRGB(x, y, (alpha << 24) | random.nextInt(0x1000000));
+            }
+        }
+        sprite = new SpriteFrame(image);
+    }
+
+    @Benchmark
+    public void drawImage(){
+        renderer.flushBuffers();
+        renderer.drawImage(sprite, Const.VIEWPORT_WIDTH + 50, 50, spriteSize, spriteSize, 5);
+    }
+
+    @Benchmark
+    public void flushBuffers(){
+        renderer.flushBuffers();
+    }
+}
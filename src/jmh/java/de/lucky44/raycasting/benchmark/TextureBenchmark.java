@@ -0,0 +1,63 @@
+package de.lucky44.raycasting.benchmark;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.rendering.Renderer;
+import de.lucky44.raycasting.engine.rendering.TextureManager;
+import de.lucky44.raycasting.engine.world.World;
+import de.lucky44.raycasting.tools.WorldGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures drawing one wall column for different wall heights, the way Ray draws its walls:
+ * finding the texture column, picking the shaded texels and scaling them into the screen buffer (Renderer.drawTextureColumn)
+ * @author Nick Balischewski
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class TextureBenchmark {
+
+    @Param({"100", "800", "3200"})
+    public int height;
+
+    @Param({"0", "1"})
+    public int side;
+
+    private String directory;
+    private World world;
+    private Renderer renderer;
+    private double texX = 0;
+    private int x = 0;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        directory = WorldGenerator.generateTemporary(WorldGenerator.Layout.ARENA, 32, 0, 0, 3);
+        world = new World(directory);
+        renderer = new Renderer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown(){
+        WorldGenerator.delete(directory);
+    }
+
+    @Benchmark
+    public void drawTextureColumn(){
+        texX += 0.013;
+        if(texX > 1)
+            texX -= 1;
+        x = x + 1 == Const.VIEWPORT_WIDTH ? 0 : x + 1;
+
+        TextureManager textures = world.getTextureManager();
+        int column = textures.getTextureColumn(0, texX);
+        int[] texels = textures.getShadedTexels(0, side, 0);
+        //no depth (-1), so every column gets drawn without flushing the buffers in between
+        renderer.drawTextureColumn(Const.VIEWPORT_WIDTH + x, Const.VIEWPORT_HEIGHT / 2 - height / 2, height, texels, column,
+                textures.getTextureHeight(0), -1);
+    }
+}
@@ -27,8 +27,8 @@ public class Const {
     public static final int VIEWPORT_HEIGHT = Math.min(WIDTH, HEIGHT);
 
     //Player
-    public static final double PLAYER_TURN_SPEED = 50;
-    public static final double PLAYER_WALK_SPEED = 1.5;
+    public static final double PLAYER_TURN_SPEED = 83.3;
+    public static final double PLAYER_WALK_SPEED = 2.5;
 
     //Time
     public static final double FPS_CAP = 120;
@@ -43,9 +43,51 @@ public class Const {
     public static final int RAYCASTER_RESOLUTION = VIEWPORT_WIDTH;
     public static final int RAYCASTER_LINE_WIDTH = VIEWPORT_WIDTH / RAYCASTER_RESOLUTION;
     public static final int FOV = 70;
+    /*
+    The projection is the same for every map size: WALL_SCALE is the height (in pixels) of a wall one cell away from the camera,
+    walls, floor and ceiling shrink with 1 / distance from there
+    Sprites are sized in units of 1 / SPRITE_UNITS_PER_CELL cells, so a sprite of SPRITE_UNITS_PER_CELL is exactly as high as a wall
+     */
+    public static final double WALL_SCALE = VIEWPORT_HEIGHT;
+    public static final double SPRITE_UNITS_PER_CELL = 40;
+    public static final double SPRITE_SCALE = WALL_SCALE / SPRITE_UNITS_PER_CELL;
     public static final double MAX_RAY_LENGTH = 100;
     public static final double DR = 0.0174533;
     public static final double ALPHA_CLIP = 0.2d;
+    /*
+    When enabled the screen is split into column bands, which are traced and rasterised on all available cores
+    (the floor and ceiling are cast in row bands before that), can also be toggled at runtime (key 6)
+    A band gets split until it is at most RAYCASTER_MIN_BAND_WIDTH rays wide / RAYCASTER_MIN_BAND_HEIGHT rows high
+     */
+    public static final boolean PARALLEL_RAYCASTING = false;
+    public static final int RAYCASTER_MIN_BAND_WIDTH = 16;
+    public static final int RAYCASTER_MIN_BAND_HEIGHT = 16;
+    /*
+    Every texture gets baked in SHADE_LEVELS brightness levels per wall side, which are used for the distance fog
+    FOG_DISTANCE is the distance (in cells) at which walls reach the darkest level, 0 disables the fog
+     */
+    public static final int SHADE_LEVELS = 16;
+    public static final double FOG_DISTANCE = 0;
+
+    //Minimap
+    /*
+    The DEBUG-map shows at most MINIMAP_VIEW_CELLS cells in each direction, bigger maps only show a window around the player
+     */
+    public static final int MINIMAP_VIEW_CELLS = 32;
+
+    //World streaming
+    /*
+    Worlds are split into chunks of 64x64 cells, all chunks within CHUNK_LOAD_RADIUS chunks of the player are kept loaded
+    Chunks further away get evicted (least recently needed first) once the loaded chunks take up more than CHUNK_MEMORY_BUDGET megabytes
+     */
+    public static final int CHUNK_LOAD_RADIUS = 2;
+    public static final int CHUNK_MEMORY_BUDGET = 64;
+
+    //Hot reload
+    /*
+    Watches the directory of the loaded world, changed files get reloaded in the background without rebuilding the world (8 still reloads everything)
+     */
+    public static final boolean HOT_RELOAD = true;
 
     //Colors
     public static final Color WALL_HIGHLIGHT = new Color(0.45f,0.45f,0.45f);
@@ -1,6 +1,6 @@
 package de.lucky44.raycasting.engine.animation;
 
-import java.awt.image.BufferedImage;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
 
 /**
  * Simple immutable data holder for passing animation data
@@ -9,6 +9,6 @@ import java.awt.image.BufferedImage;
  * @param frameTime The time each frame should stay on-screen
  * @author Nick Balischewski
  */
-public record Animation (String name, BufferedImage[] frames, double frameTime) {
+public record Animation (String name, SpriteFrame[] frames, double frameTime) {
 
 }
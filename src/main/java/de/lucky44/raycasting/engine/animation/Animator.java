@@ -1,12 +1,10 @@
 package de.lucky44.raycasting.engine.animation;
 
 import de.lucky44.raycasting.engine.rendering.Renderer;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
 import de.lucky44.raycasting.engine.time.Time;
 import lombok.Getter;
 
-import java.awt.*;
-import java.awt.image.BufferedImage;
-
 /**
  * The Animator Object for displaying Animations on the Screen
  * @author Nick Balischewski
@@ -67,7 +65,7 @@ public class Animator {
         if(currentAnimation == null)
             return;
 
-        elapsedTime += Time.deltaTime;
+        elapsedTime += Time.frameDeltaTime;
 
         r.drawImage(currentAnimation.frames()[currentFrame], screenX, screenY, spriteW, spriteH, dist);
 
@@ -84,9 +82,9 @@ public class Animator {
      * Gets the frame with the index i1 of the animation with index i
      * @param i the index of the animation
      * @param i1 the index of the frame
-     * @return the frame{@link BufferedImage} with index i1 of the animation with index i
+     * @return the frame{@link SpriteFrame} with index i1 of the animation with index i
      */
-    public BufferedImage getFrame(int i, int i1) {
+    public SpriteFrame getFrame(int i, int i1) {
         if(animations.length == 0)
             return null;
 
@@ -34,7 +34,9 @@ public class RaycasterGame{
      * Starts the frame and update threads
      */
     public void startGameLoop(){
-        Thread gameLoop = new Thread(timeManager);
-        gameLoop.start();
+        Thread simulation = new Thread(timeManager::simulate, "Simulation");
+        Thread render = new Thread(timeManager::render, "Render");
+        simulation.start();
+        render.start();
     }
 }
@@ -1,21 +1,37 @@
 package de.lucky44.raycasting.engine.architecture;
 
+import de.lucky44.raycasting.engine.Const;
 import de.lucky44.raycasting.engine.input.Input;
 import de.lucky44.raycasting.engine.scenes.Scene;
+import de.lucky44.raycasting.engine.time.FrameProfiler;
+import de.lucky44.raycasting.engine.time.Time;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferStrategy;
 
 /**
  * The Graphics-Panel for the Game
+ * Renders actively: the render thread draws straight into the back buffer of a BufferStrategy and decides when it gets shown,
+ * there are no repaint requests and no paint events involved
  * @author Nick Balischewski
  */
-public class RaycasterPanel extends JPanel{
+public class RaycasterPanel extends Canvas{
+
+    /**
+     * The amount of buffers of the BufferStrategy (front + back)
+     */
+    private static final int BUFFER_COUNT = 2;
 
     /**
      * The currently loaded Scene
      */
-    private Scene loadedScene = null;
+    private volatile Scene loadedScene = null;
+
+    /**
+     * The BufferStrategy the frames are presented with (created once the panel is displayable)
+     */
+    private BufferStrategy bufferStrategy = null;
 
     /**
      * The Constructor initializes a new InputManager Instance
@@ -24,6 +40,11 @@ public class RaycasterPanel extends JPanel{
     public RaycasterPanel(){
         Input inputManager = new Input();
 
+        setPreferredSize(new Dimension(Const.WIDTH, Const.HEIGHT));
+        setBackground(UIManager.getColor("Panel.background"));
+        setIgnoreRepaint(true);
+        setFocusable(true);
+
         addKeyListener(inputManager);
     }
 
@@ -45,26 +66,57 @@ public class RaycasterPanel extends JPanel{
     }
 
     /**
-     * Basically renders a frame
-     * @param g the <code>Graphics</code> object to protect
+     * Renders a frame of the currently loaded Scene-Instance into the back buffer and presents it
+     * (Render thread)
+     * @return true if a frame was presented, false if there is nothing to present to yet
      */
-    @Override
-    public void paintComponent(Graphics g){
-        super.paintComponent(g);
-
-        if(loadedScene == null)
-            return;
-
-        loadedScene.Draw((Graphics2D) g);
+    public boolean renderFrame() {
+        Scene scene = loadedScene;
+        if(scene == null || !isDisplayable())
+            return false;
+
+        if(bufferStrategy == null){
+            createBufferStrategy(BUFFER_COUNT);
+            bufferStrategy = getBufferStrategy();
+        }
+
+        long frameStart = System.nanoTime();
+
+        //the contents of the buffers can get lost (e.g. when the display mode changes), then the frame has to be drawn again
+        do{
+            do{
+                Graphics2D g = (Graphics2D) bufferStrategy.getDrawGraphics();
+                g.setColor(getBackground());
+                g.fillRect(0, 0, getWidth(), getHeight());
+
+                scene.Draw(g);
+                g.dispose();
+            } while(bufferStrategy.contentsRestored());
+
+            long presentStart = System.nanoTime();
+            bufferStrategy.show();
+            Time.PROFILER.record(FrameProfiler.Stage.PRESENT, presentStart);
+        } while(bufferStrategy.contentsLost());
+
+        long syncStart = System.nanoTime();
+        Toolkit.getDefaultToolkit().sync();
+        Time.PROFILER.record(FrameProfiler.Stage.PRESENT, syncStart);
+
+        Time.PROFILER.record(FrameProfiler.Stage.FRAME, frameStart);
+        Time.PROFILER.endFrame();
+        return true;
     }
 
     /**
-     * Updates the currently loaded Scene-Instance
+     * Updates the currently loaded Scene-Instance and publishes its new state
+     * (Simulation thread)
      */
     public void updateScene() {
-        if(loadedScene == null)
+        Scene scene = loadedScene;
+        if(scene == null)
             return;
 
-        loadedScene.Update();
+        scene.Update();
+        scene.Publish();
     }
 }
@@ -1,7 +1,5 @@
 package de.lucky44.raycasting.engine.architecture;
 
-import de.lucky44.raycasting.engine.Const;
-
 import javax.swing.*;
 
 /**
@@ -15,8 +13,9 @@ public class RaycasterWindow extends JFrame{
      */
     public RaycasterWindow(RaycasterPanel raycasterPanel){
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-        setSize(Const.WIDTH, Const.HEIGHT);
         add(raycasterPanel);
+        setResizable(false);
+        pack();
         setVisible(true);
         setName("Lucky-Raycaster v4");
         setTitle("Lucky-Raycaster v4");
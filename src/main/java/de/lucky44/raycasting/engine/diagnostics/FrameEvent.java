@@ -0,0 +1,57 @@
+package de.lucky44.raycasting.engine.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Gets committed for every frame the SinglePlayerScene draws, so spikes can be lined up with GC and I/O in JMC
+ * Cheap enough to stay enabled, all fields are only filled in if the event gets committed
+ * @author Nick Balischewski
+ */
+@Name("de.lucky44.raycasting.Frame")
+@Label("Frame")
+@Category({"Raycaster", "Rendering"})
+@Description("One frame drawn by the SinglePlayerScene")
+@StackTrace(false)
+public class FrameEvent extends Event {
+
+    /**
+     * The name of the world which was drawn
+     */
+    @Label("World")
+    public String world;
+
+    /**
+     * The amount of loaded entities
+     */
+    @Label("Entities")
+    public int entities;
+
+    /**
+     * The amount of entities whose sprite was drawn
+     */
+    @Label("Entities On Screen")
+    public int entitiesOnScreen;
+
+    /**
+     * The amount of chunks which were loaded
+     */
+    @Label("Loaded Chunks")
+    public int loadedChunks;
+
+    /**
+     * The DEBUG-mode (key code, 0 = off)
+     */
+    @Label("Debug Mode")
+    public int debugMode;
+
+    /**
+     * Was the frame raycast in parallel
+     */
+    @Label("Parallel")
+    public boolean parallel;
+}
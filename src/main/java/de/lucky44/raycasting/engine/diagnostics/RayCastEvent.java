@@ -0,0 +1,38 @@
+package de.lucky44.raycasting.engine.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Gets committed for every batch of rays the RaycasterRenderer casts (one per frame)
+ * @author Nick Balischewski
+ */
+@Name("de.lucky44.raycasting.RayCast")
+@Label("Ray Cast")
+@Category({"Raycaster", "Rendering"})
+@Description("Casting all rays of one frame")
+@StackTrace(false)
+public class RayCastEvent extends Event {
+
+    /**
+     * The amount of rays
+     */
+    @Label("Rays")
+    public int rays;
+
+    /**
+     * The amount of PolyWall segments the rays were tested against
+     */
+    @Label("PolyWall Tests")
+    public long polyWallTests;
+
+    /**
+     * Were the rays cast (and rasterised) in parallel
+     */
+    @Label("Parallel")
+    public boolean parallel;
+}
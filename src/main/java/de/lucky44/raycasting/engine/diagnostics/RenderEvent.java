@@ -0,0 +1,38 @@
+package de.lucky44.raycasting.engine.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Gets committed for every frame the RaycasterRenderer rasterises and draws
+ * @author Nick Balischewski
+ */
+@Name("de.lucky44.raycasting.Render")
+@Label("Render")
+@Category({"Raycaster", "Rendering"})
+@Description("Rasterising and drawing one frame")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    /**
+     * The amount of renderables (wall stripes) which were rasterised
+     */
+    @Label("Renderables")
+    public int renderables;
+
+    /**
+     * The amount of sprites which were projected
+     */
+    @Label("Sprites")
+    public int sprites;
+
+    /**
+     * The amount of sprites which were drawn
+     */
+    @Label("Sprites On Screen")
+    public int spritesOnScreen;
+}
@@ -0,0 +1,53 @@
+package de.lucky44.raycasting.engine.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Gets committed for every tilemap which gets read (also on the loading threads)
+ * @author Nick Balischewski
+ */
+@Name("de.lucky44.raycasting.TileMapLoad")
+@Label("Tilemap Load")
+@Category({"Raycaster", "Loading"})
+@Description("Reading and decoding one tilemap")
+@StackTrace(false)
+public class TileMapLoadEvent extends Event {
+
+    /**
+     * The file name of the tilemap-image
+     */
+    @Label("Tilemap")
+    public String tileMap;
+
+    /**
+     * The size of the image file
+     */
+    @Label("File Bytes")
+    @DataAmount
+    public long fileBytes;
+
+    /**
+     * The size of the decoded image (argb)
+     */
+    @Label("Decoded Bytes")
+    @DataAmount
+    public long decodedBytes;
+
+    /**
+     * The width of the image
+     */
+    @Label("Width")
+    public int width;
+
+    /**
+     * The height of the image
+     */
+    @Label("Height")
+    public int height;
+}
@@ -0,0 +1,80 @@
+package de.lucky44.raycasting.engine.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Gets committed for every world which gets loaded (including full reloads)
+ * @author Nick Balischewski
+ */
+@Name("de.lucky44.raycasting.WorldLoad")
+@Label("World Load")
+@Category({"Raycaster", "Loading"})
+@Description("Loading a whole world")
+public class WorldLoadEvent extends Event {
+
+    /**
+     * The name of the world
+     */
+    @Label("World")
+    public String world;
+
+    /**
+     * The directory of the world
+     */
+    @Label("Directory")
+    public String directory;
+
+    /**
+     * Was the compiled world (world.rcw) loaded
+     */
+    @Label("Compiled")
+    public boolean compiled;
+
+    /**
+     * The width of the map in cells
+     */
+    @Label("Width")
+    public int width;
+
+    /**
+     * The height of the map in cells
+     */
+    @Label("Height")
+    public int height;
+
+    /**
+     * The amount of chunks of the map
+     */
+    @Label("Chunks")
+    public int chunks;
+
+    /**
+     * The amount of chunks which were loaded around the player
+     */
+    @Label("Loaded Chunks")
+    public int loadedChunks;
+
+    /**
+     * The amount of tilemaps
+     */
+    @Label("Tilemaps")
+    public int tileMaps;
+
+    /**
+     * The amount of textures
+     */
+    @Label("Textures")
+    public int textures;
+
+    /**
+     * The memory the decoded textures and their shade variants take up
+     */
+    @Label("Texture Bytes")
+    @DataAmount
+    public long textureBytes;
+}
@@ -1,12 +1,10 @@
 package de.lucky44.raycasting.engine.entities;
 
 import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.rendering.Camera;
 import de.lucky44.raycasting.rendering.renderables.Sprite;
-import de.lucky44.raycasting.engine.scenes.Scene;
-import de.lucky44.raycasting.scenes.SinglePlayerScene;
 import lombok.Getter;
 
-import java.awt.*;
 import java.awt.image.BufferedImage;
 
 /**
@@ -42,14 +40,19 @@ public class Entity {
 
     /**
      * Calculates the necessary data for rendering to screen
-     * @param startPos the StartPosition of the Entity
-     * @param normal the normalized direction to the Player/Camera
-     * @param g the Graphics2D Instance to draw on (for DEBUG drawing)
-     * @param parent the Scene which this Entity is currently in
-     * @param rotation the rotation of the Player/Camera
+     * @param camera the Camera the Entity is projected with
      */
-    public void calculateRender(vec2D startPos, vec2D normal, Graphics2D g, Scene parent, double rotation) {
-        spriteRenderer.calculateSprite(position, startPos, normal, g, (SinglePlayerScene) parent, rotation);
+    public void calculateRender(Camera camera) {
+        calculateRender(position, camera);
+    }
+
+    /**
+     * Calculates the necessary data for rendering to screen, at the given position instead of the current one
+     * @param position the position the Entity is rendered at
+     * @param camera the Camera the Entity is projected with
+     */
+    public void calculateRender(vec2D position, Camera camera) {
+        spriteRenderer.calculateSprite(position, camera);
     }
 
     /**
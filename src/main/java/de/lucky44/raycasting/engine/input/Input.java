@@ -4,9 +4,10 @@ import de.lucky44.raycasting.engine.scenes.Scene;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Object for handling Inputs from mouse and keyboard
@@ -22,9 +23,9 @@ public class Input implements KeyListener {
      */
     private static final Set<Scene> registered = new HashSet<>();
     /**
-     * The map for caching pressed/released keys
+     * The map for caching pressed/released keys (written by the EDT, read by the simulation thread)
      */
-    private static final HashMap<Integer, Boolean> keyMap = new HashMap<>();
+    private static final Map<Integer, Boolean> keyMap = new ConcurrentHashMap<>();
 
     /**
      * Constructor after Singleton Pattern
@@ -98,6 +99,6 @@ public class Input implements KeyListener {
 
         //System.out.println("Requesting " + keyCode + " -> " + keyMap.computeIfAbsent(keyCode, k -> false));
 
-        return keyMap.computeIfAbsent(keyCode, k -> false);
+        return keyMap.getOrDefault(keyCode, false);
     }
 }
@@ -0,0 +1,134 @@
+package de.lucky44.raycasting.engine.rendering;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+import lombok.Getter;
+
+/**
+ * A Camera made from a direction vector and a camera plane perpendicular to it
+ * The ray of every screen column is dir + plane * cameraX, where the cameraX (-1 to 1) of each column is precomputed,
+ * so generating rays needs no trigonometry and the distance along a ray is already the perpendicular distance
+ * @author Nick Balischewski
+ */
+public class Camera {
+
+    /**
+     * The position of the Camera
+     */
+    public double posX, posY;
+    /**
+     * The (normalized) direction the Camera is facing
+     */
+    public double dirX, dirY;
+    /**
+     * The camera plane, its length decides the FOV
+     */
+    public double planeX, planeY;
+
+    /**
+     * The field of view in degrees
+     */
+    @Getter
+    private int fov = -1;
+    /**
+     * The amount of screen columns (rays)
+     */
+    @Getter
+    private int resolution = -1;
+    /**
+     * The length of the camera plane (tan(fov/2))
+     */
+    private double planeLength;
+    /**
+     * The cameraX (-1 = left edge, 1 = right edge) of every screen column
+     */
+    private double[] columnCameraX;
+
+    /**
+     * Initializes the Camera and builds the column tables
+     * @param fov the field of view in degrees
+     * @param resolution the amount of screen columns
+     */
+    public Camera(int fov, int resolution){
+        setProjection(fov, resolution);
+    }
+
+    /**
+     * Changes the field of view and resolution, the column tables only get rebuilt if one of them actually changed
+     * @param fov the field of view in degrees
+     * @param resolution the amount of screen columns
+     */
+    public void setProjection(int fov, int resolution){
+        if(this.fov == fov && this.resolution == resolution)
+            return;
+
+        this.fov = fov;
+        this.resolution = resolution;
+        planeLength = Math.tan(Math.toRadians(fov) / 2);
+
+        columnCameraX = new double[resolution];
+        for(int i = 0; i < resolution; i++){
+            //sample the center of each column
+            columnCameraX[i] = 2 * (i + 0.5d) / resolution - 1;
+        }
+
+        updatePlane();
+    }
+
+    /**
+     * Moves and turns the Camera (the only place where trigonometry is needed)
+     * @param position the new position
+     * @param rotation the new rotation in radians
+     */
+    public void update(vec2D position, double rotation){
+        posX = position.x;
+        posY = position.y;
+        dirX = Math.cos(rotation);
+        dirY = Math.sin(rotation);
+        updatePlane();
+    }
+
+    /**
+     * Recalculates the camera plane from the direction
+     */
+    private void updatePlane(){
+        planeX = -dirY * planeLength;
+        planeY = dirX * planeLength;
+    }
+
+    /**
+     * @param column the screen column
+     * @return the X direction of the ray through that column
+     */
+    public double rayDirX(int column){
+        return dirX + planeX * columnCameraX[column];
+    }
+
+    /**
+     * @param column the screen column
+     * @return the Y direction of the ray through that column
+     */
+    public double rayDirY(int column){
+        return dirY + planeY * columnCameraX[column];
+    }
+
+    /**
+     * Transforms a point (relative to the camera) into its perpendicular depth in front of the camera
+     * @param relX the X coordinate relative to the camera
+     * @param relY the Y coordinate relative to the camera
+     * @return the depth (negative if the point lies behind the camera)
+     */
+    public double depth(double relX, double relY){
+        return (relX * planeY - planeX * relY) / (dirX * planeY - planeX * dirY);
+    }
+
+    /**
+     * Transforms a point (relative to the camera) into its cameraX, meaning its horizontal screen position (-1 to 1 is visible)
+     * @param relX the X coordinate relative to the camera
+     * @param relY the Y coordinate relative to the camera
+     * @return the cameraX of the point
+     */
+    public double cameraX(double relX, double relY){
+        double side = (dirX * relY - dirY * relX) / (dirX * planeY - planeX * dirY);
+        return side / depth(relX, relY);
+    }
+}
@@ -1,10 +1,12 @@
 package de.lucky44.raycasting.engine.rendering;
 
 import de.lucky44.raycasting.engine.Const;
-import de.lucky44.raycasting.scenes.SinglePlayerScene;
+import lombok.Getter;
+import lombok.Setter;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.util.Arrays;
 
 /**
@@ -15,29 +17,60 @@ public class Renderer {
     /**
      * Screen Buffer
      */
+    @Getter
     private final BufferedImage screenBuffer;
+    /**
+     * The raw RGB backing array of the screen buffer (row-major, VIEWPORT_WIDTH pixels per row)
+     * The buffer is TYPE_INT_RGB: only the lower 24 bits are the color, the top byte is no valid alpha and has to be ignored
+     * Writing into this directly skips the ColorModel conversion and bounds checks of BufferedImage.setRGB
+     */
+    @Getter
+    protected final int[] pixels;
     /**
      * Cached Graphics Instance ? I really don't know anymore
      */
     private final Graphics2D bufferG;
     /**
-     * The Depth-Buffer for keeping track of the Depth of each Pixel
+     * The perpendicular distance of the nearest wall in every screen column
+     * Walls are drawn one column at a time, so this is all the depth there is to test against, everything else is drawn back to front
+     */
+    private final float[] columnDepth;
+    /**
+     * Should the per-pixel depth buffer be written as well (only needed for the depth buffer view)
      */
-    private final double[][] depthBuffer;
+    @Getter
+    @Setter
+    private boolean recordDepth = false;
     /**
-     * A SinglePlayerScene{@link SinglePlayerScene} Instance (Terrible practice, as this is inside the engine package and the SinglePlayerScene is inside the game package)
+     * The Depth-Buffer for keeping track of the Depth of each Pixel (flat and row-major, just like the screen buffer)
+     * Only written while recordDepth is set
      */
-    private SinglePlayerScene parent;
+    private final float[] depthBuffer;
+    /**
+     * The generation in which each depth-cell was last written, cells of older generations count as cleared
+     */
+    private final int[] depthGeneration;
+    /**
+     * The current generation of the depth buffer, gets bumped by every flush
+     */
+    private int generation = 1;
+    /**
+     * The depth every cleared cell of the depth buffer reports, also used to scale the depth buffer view
+     */
+    @Getter
+    @Setter
+    private float depthRange = 1;
 
     /**
-     * Initializes all important references
-     * @param scene the SinglePlayerScene instance currently in use
+     * Initializes the screen- and depth-buffer
      */
-    public Renderer(SinglePlayerScene scene){
-        this.parent = scene;
-        screenBuffer = new BufferedImage(Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+    public Renderer(){
+        screenBuffer = new BufferedImage(Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        pixels = ((DataBufferInt) screenBuffer.getRaster().getDataBuffer()).getData();
         bufferG = screenBuffer.createGraphics();
-        depthBuffer = new double[Const.VIEWPORT_WIDTH][Const.VIEWPORT_HEIGHT];
+        columnDepth = new float[Const.VIEWPORT_WIDTH];
+        depthBuffer = new float[Const.VIEWPORT_WIDTH * Const.VIEWPORT_HEIGHT];
+        depthGeneration = new int[Const.VIEWPORT_WIDTH * Const.VIEWPORT_HEIGHT];
     }
 
     /**
@@ -66,15 +99,13 @@ public class Renderer {
      * @param argb the argb color of the rect
      */
     public void fillRect(int startX, int startY, int w, int h, int argb){
-        for(int x = startX; x < startX + w; x++){
-            for(int y = startY; y < startY + h; y++){
-                drawPixel(x,y,argb);
-            }
+        for(int y = startY; y < startY + h; y++){
+            fillSpan(startX, y, w, argb);
         }
     }
 
     /**
-     * Sets a single pixel inside the screen buffer
+     * Sets a single pixel inside the screen buffer, unless a wall in its column is nearer
      * @param x the X coordinate of the pixel
      * @param y the Y coordinate of the pixel
      * @param argb the argb color of the pixel
@@ -93,11 +124,13 @@ public class Renderer {
         if(y < 0 || y >= Const.VIEWPORT_HEIGHT)
             return;
 
-        if(depthBuffer[x-Const.VIEWPORT_WIDTH][y] <= dist)
+        if(columnDepth[x - Const.VIEWPORT_WIDTH] <= dist)
             return;
 
-        depthBuffer[x-Const.VIEWPORT_WIDTH][y] = dist;
-        screenBuffer.setRGB(x-Const.VIEWPORT_WIDTH,y,argb);
+        int i = y * Const.VIEWPORT_WIDTH + x - Const.VIEWPORT_WIDTH;
+        if(recordDepth)
+            setDepth(i, dist);
+        pixels[i] = argb;
     }
 
     /**
@@ -114,55 +147,146 @@ public class Renderer {
         if(y < 0 || y >= Const.VIEWPORT_HEIGHT)
             return;
 
-        screenBuffer.setRGB(x-Const.VIEWPORT_WIDTH,y,argb);
+        pixels[y * Const.VIEWPORT_WIDTH + x - Const.VIEWPORT_WIDTH] = argb;
     }
 
     /**
-     * flushes/clears the depth buffer
+     * Draws one wall column of a column-major texture, scaled to the given height, straight into the screen buffer
+     * The texture is stepped through in 16.16 fixed-point and clipped against the screen, so no stripe has to be built first
+     * The column is skipped if it already holds a nearer wall, otherwise it becomes the wall of its column
+     * @param x the X coordinate of the column
+     * @param startY the Y coordinate of the top of the (unclipped) column
+     * @param height the height the texture column gets scaled to
+     * @param texels the column-major texels of the texture
+     * @param column the index of the first texel of the column inside texels
+     * @param texHeight the height of the texture
+     * @param dist the depth of the column (-1 for infinitely far away)
      */
-    public void flushBuffers(){
-        for(int x = 0; x < Const.VIEWPORT_WIDTH; x ++){
-            for(int y = 0; y < Const.VIEWPORT_HEIGHT; y++){
-                depthBuffer[x][y] = parent.MAP_CELL_RESOLUTION;
+    public void drawTextureColumn(int x, int startY, int height, int[] texels, int column, int texHeight, double dist){
+        int screenX = x - Const.VIEWPORT_WIDTH;
+
+        if(screenX < 0 || screenX >= Const.VIEWPORT_WIDTH || height <= 0)
+            return;
+
+        if(dist != -1){
+            if(columnDepth[screenX] <= dist)
+                return;
+            columnDepth[screenX] = (float) dist;
+        }
+
+        int from = Math.max(0, -startY);
+        int to = Math.min(height, Const.VIEWPORT_HEIGHT - startY);
+
+        int step = (texHeight << 16) / height;
+        int texPos = from * step;
+        int pixel = (startY + from) * Const.VIEWPORT_WIDTH + screenX;
+
+        for(int i = from; i < to; i++, texPos += step, pixel += Const.VIEWPORT_WIDTH){
+            pixels[pixel] = texels[column + (texPos >>> 16)];
+        }
+
+        if(recordDepth && dist != -1){
+            for(int i = from, p = (startY + from) * Const.VIEWPORT_WIDTH + screenX; i < to; i++, p += Const.VIEWPORT_WIDTH){
+                setDepth(p, dist);
             }
         }
     }
 
+    /**
+     * Fills a horizontal span of infinitely far away pixels with one color, clipping it against the screen
+     * @param x the X coordinate of the first pixel of the span
+     * @param y the Y coordinate of the span
+     * @param length the length of the span
+     * @param argb the argb color of the span
+     */
+    public void fillSpan(int x, int y, int length, int argb){
+        if(y < 0 || y >= Const.VIEWPORT_HEIGHT)
+            return;
+
+        int screenX = x - Const.VIEWPORT_WIDTH;
+        int from = Math.max(0, screenX);
+        int to = Math.min(Const.VIEWPORT_WIDTH, screenX + length);
+
+        if(to <= from)
+            return;
+
+        int row = y * Const.VIEWPORT_WIDTH;
+        Arrays.fill(pixels, row + from, row + to, argb);
+    }
+
+    /**
+     * Reads the depth of a pixel, cells which were not written since the last flush report the clear depth
+     * @param i the index of the pixel inside the screen buffer
+     * @return the depth of the pixel
+     */
+    private float getDepth(int i){
+        return depthGeneration[i] == generation ? depthBuffer[i] : depthRange;
+    }
+
+    /**
+     * Writes the depth of a pixel and stamps it with the current generation
+     * @param i the index of the pixel inside the screen buffer
+     * @param dist the new depth of the pixel
+     */
+    private void setDepth(int i, double dist){
+        depthBuffer[i] = (float) dist;
+        depthGeneration[i] = generation;
+    }
+
+    /**
+     * flushes/clears the column depths and the depth buffer
+     * (the depth buffer only bumps the generation, the buffer itself is just rewritten when the generation counter wraps around)
+     */
+    public void flushBuffers(){
+        Arrays.fill(columnDepth, depthRange);
+        generation++;
+
+        if(generation == 0){
+            Arrays.fill(depthGeneration, 0);
+            generation = 1;
+        }
+    }
+
     /**
      * Draws the screen buffer to the Screen
      * @param g the Graphics2D Instance to draw on
      */
     public void render(Graphics2D g){
-        g.drawImage(screenBuffer, Const.VIEWPORT_WIDTH, 0, Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT, null);
+        g.drawImage(screenBuffer, Const.VIEWPORT_WIDTH, 0, null);
     }
 
     /**
-     * Draws the depth buffer in color
+     * Draws the depth buffer in color (only holds something while recordDepth is set)
      * @param g the Graphics2D Instance to draw on
      */
     public void renderDepthBuffer(Graphics2D g){
 
         render(g);
 
-        for(int x = 0; x < Const.VIEWPORT_WIDTH-1; x++){
-            for(int y = 0; y < Const.VIEWPORT_HEIGHT-1; y++){
-                screenBuffer.setRGB(x,y,new Color((float) depthBuffer[x][y]/parent.MAP_CELL_RESOLUTION, (float) depthBuffer[x][y]/parent.MAP_CELL_RESOLUTION, (float) depthBuffer[x][y]/parent.MAP_CELL_RESOLUTION).getRGB());
+        for(int y = 0; y < Const.VIEWPORT_HEIGHT-1; y++){
+            for(int x = 0; x < Const.VIEWPORT_WIDTH-1; x++){
+                int i = y * Const.VIEWPORT_WIDTH + x;
+                float depth = getDepth(i) / depthRange;
+                pixels[i] = new Color(depth, depth, depth).getRGB();
             }
         }
 
-        g.drawImage(screenBuffer, Const.VIEWPORT_WIDTH, 0, Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT, null);
+        g.drawImage(screenBuffer, Const.VIEWPORT_WIDTH, 0, null);
     }
 
     /**
-     * Draws an image on the screen buffer
-     * @param sprite the Image to draw
+     * Draws a sprite frame on the screen buffer
+     * The frame is clipped column by column against the walls, columns behind a wall are skipped entirely
+     * Only the opaque runs of each column are copied, so transparent texels cost nothing
+     * Sprites are not depth tested against each other, so they have to be drawn back to front
+     * @param sprite the frame to draw
      * @param startX the X coordinate of the upper left corner of the image
      * @param startY the Y coordinate of the upper left corner of the image
      * @param w the width of the image
      * @param h the height of the image
      * @param dist the distance from the image to the player/camera
      */
-    public void drawImage(BufferedImage sprite, int startX, int startY, int w, int h, double dist) {
+    public void drawImage(SpriteFrame sprite, int startX, int startY, int w, int h, double dist) {
 
         if(startX - Const.VIEWPORT_WIDTH < 0 || startX - Const.VIEWPORT_WIDTH >= Const.VIEWPORT_WIDTH)
             return;
@@ -170,33 +294,42 @@ public class Renderer {
         if(startY < 0 || startY >= Const.VIEWPORT_HEIGHT)
             return;
 
-        if(w > Const.VIEWPORT_WIDTH || w < 0 || h > Const.VIEWPORT_HEIGHT || h < 0)
+        if(w > Const.VIEWPORT_WIDTH || w <= 0 || h > Const.VIEWPORT_HEIGHT || h <= 0)
             return;
 
-        double stepX = (double) (sprite.getWidth()-1) / w;
-        double stepY = (double) (sprite.getHeight()-1) / h;
+        int[] texels = sprite.getTexels();
+        int[] spans = sprite.getSpans();
+        int texHeight = sprite.getHeight();
+
+        //16.16 fixed-point steps through the frame
+        int stepX = (sprite.getWidth() << 16) / w;
+        int stepY = (texHeight << 16) / h;
+        int rows = Math.min(h, Const.VIEWPORT_HEIGHT - startY);
 
-        double yRead = 0;
-        double xRead = 0;
+        int screenX = startX - Const.VIEWPORT_WIDTH;
+        int columns = Math.min(w, Const.VIEWPORT_WIDTH - screenX);
 
-        for(int x = startX; x < startX+w; x++){
+        for(int x = 0, texX = 0; x < columns; x++, texX += stepX, screenX++){
 
-            yRead = 0;
-            if((int)xRead >= sprite.getWidth())
-                break;
+            if(columnDepth[screenX] <= dist)
+                continue;
 
-            for(int y = startY; y < startY+h; y++){
+            int column = texX >>> 16;
+            int texColumn = column * texHeight;
 
-                if((int)yRead >= sprite.getHeight())
-                    break;
+            for(int span = sprite.getSpanStart(column); span < sprite.getSpanStart(column + 1); span += 2){
+                //the screen rows whose texel row lies inside the run
+                int from = stepY == 0 ? (spans[span] == 0 ? 0 : rows) : (int)((((long) spans[span] << 16) + stepY - 1) / stepY);
+                int to = stepY == 0 ? rows : (int)Math.min(rows, (((long) spans[span + 1] << 16) + stepY - 1) / stepY);
 
-                //System.out.println((int)xRead + " " + (int)yRead + " -- " + sprite.getWidth() + " " + sprite.getHeight());
-                if(new Color(sprite.getRGB((int)xRead, (int)yRead), true).getAlpha() > Const.ALPHA_CLIP){
-                    drawPixel(x, y, sprite.getRGB((int)xRead, (int)yRead), dist);
+                int texY = from * stepY;
+                int pixel = (startY + from) * Const.VIEWPORT_WIDTH + screenX;
+                for(int y = from; y < to; y++, texY += stepY, pixel += Const.VIEWPORT_WIDTH){
+                    if(recordDepth)
+                        setDepth(pixel, dist);
+                    pixels[pixel] = texels[texColumn + (texY >>> 16)];
                 }
-                yRead += stepY;
             }
-            xRead += stepX;
         }
     }
 }
@@ -0,0 +1,108 @@
+package de.lucky44.raycasting.engine.rendering;
+
+import de.lucky44.raycasting.engine.Const;
+import lombok.Getter;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A sprite image (or one frame of an animation), decoded once when it is loaded
+ * Keeps its texels column-major (like the textures) and, for every column, the runs of opaque texels (alpha above ALPHA_CLIP)
+ * So drawing a sprite only copies the visible runs and never has to look at the alpha of a single pixel
+ * @author Nick Balischewski
+ */
+public class SpriteFrame {
+
+    /**
+     * The width and height of the frame
+     */
+    @Getter
+    private final int width, height;
+    /**
+     * The column-major texels (texel x, y lies at x * height + y)
+     */
+    @Getter
+    private final int[] texels;
+    /**
+     * The opaque runs of every column start at spans[columnSpans[x]] and end before spans[columnSpans[x + 1]]
+     */
+    private final int[] columnSpans;
+    /**
+     * The opaque runs of all columns, each one as a pair of first row and row after the run
+     */
+    private final int[] spans;
+
+    /**
+     * Decodes the image and finds its opaque runs
+     * @param image the image
+     */
+    public SpriteFrame(BufferedImage image){
+        width = image.getWidth();
+        height = image.getHeight();
+
+        int[] rows = image.getRGB(0, 0, width, height, null, 0, width);
+        texels = new int[width * height];
+        columnSpans = new int[width + 1];
+
+        //at most every second texel starts a run
+        int[] runs = new int[width * (height + 1)];
+        int runCount = 0;
+
+        for(int x = 0; x < width; x++){
+            columnSpans[x] = runCount;
+
+            int runStart = -1;
+            for(int y = 0; y < height; y++){
+                int argb = rows[y * width + x];
+                texels[x * height + y] = argb;
+
+                boolean opaque = (argb >>> 24) > Const.ALPHA_CLIP;
+                if(opaque && runStart == -1){
+                    runStart = y;
+                }
+                else if(!opaque && runStart != -1){
+                    runs[runCount++] = runStart;
+                    runs[runCount++] = y;
+                    runStart = -1;
+                }
+            }
+
+            if(runStart != -1){
+                runs[runCount++] = runStart;
+                runs[runCount++] = height;
+            }
+        }
+        columnSpans[width] = runCount;
+
+        spans = new int[runCount];
+        System.arraycopy(runs, 0, spans, 0, runCount);
+    }
+
+    /**
+     * Decodes all images
+     * @param images the images
+     * @return the decoded frames (same order)
+     */
+    public static SpriteFrame[] of(BufferedImage[] images){
+        SpriteFrame[] frames = new SpriteFrame[images.length];
+        for(int i = 0; i < images.length; i++){
+            frames[i] = new SpriteFrame(images[i]);
+        }
+        return frames;
+    }
+
+    /**
+     * @param x the column
+     * @return the index of the first run of the column inside getSpans (the runs end at getSpanStart(x + 1))
+     */
+    public int getSpanStart(int x){
+        return columnSpans[x];
+    }
+
+    /**
+     * @return the opaque runs of all columns (pairs of first row and row after the run, see getSpanStart)
+     */
+    public int[] getSpans(){
+        return spans;
+    }
+}
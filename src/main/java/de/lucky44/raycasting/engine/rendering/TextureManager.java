@@ -1,17 +1,17 @@
 package de.lucky44.raycasting.engine.rendering;
 
 import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.diagnostics.TileMapLoadEvent;
 import de.lucky44.raycasting.engine.util.TileMap;
 import de.lucky44.raycasting.engine.util.TileMapTileInfo;
-import de.lucky44.raycasting.engine.world.World;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Object for caching textures which are loaded from the disk
@@ -19,21 +19,126 @@ import java.util.HashMap;
  */
 public class TextureManager {
     /**
-     * All textures in use by the Application
+     * The factor Color.darker() scales every channel with
      */
-    private BufferedImage[] textures;
+    private static final double DARKER_FACTOR = 0.7;
 
     /**
-     * Different TileMaps used by the Application
+     * The decoded texels of all textures in use by the Application
+     * Stored column-major (texel x, y lies at x * height + y), so a vertical wall stripe is one contiguous run of memory
      */
-    private final HashMap<String, TileMap> tileMaps = new HashMap<>();
+    private int[][] texels = new int[0][];
+    /**
+     * The baked shade variants of every texture ([texture][side * SHADE_LEVELS + level]), same layout as texels
+     * Side 1 is darkened like Color.darker(), every level darkens it further towards black (level 0 = no fog)
+     */
+    private int[][][] shadedTexels = new int[0][][];
+    /**
+     * The width of every texture
+     */
+    private int[] textureWidths = new int[0];
+    /**
+     * The height of every texture
+     */
+    private int[] textureHeights = new int[0];
+
+    /**
+     * Different TileMaps used by the Application (replaced while hot reloading)
+     */
+    private final Map<String, TileMap> tileMaps = new ConcurrentHashMap<>();
 
     /**
      * Loads the provided BufferedImage[] as the texture-list used by the Project
      * @param textures ALL textures used by the Application
      */
     public void loadTextures(BufferedImage[] textures){
-        this.textures = textures;
+        texels = new int[textures.length][];
+        textureWidths = new int[textures.length];
+        textureHeights = new int[textures.length];
+        shadedTexels = new int[textures.length][][];
+
+        for(int t = 0; t < textures.length; t++){
+            texels[t] = toColumns(textures[t]);
+            shadedTexels[t] = bakeShades(texels[t]);
+            textureWidths[t] = textures[t].getWidth();
+            textureHeights[t] = textures[t].getHeight();
+        }
+    }
+
+    /**
+     * Decodes an image into column-major texels
+     * @param image the image
+     * @return the texels (texel x, y lies at x * height + y)
+     */
+    public static int[] toColumns(BufferedImage image){
+        int w = image.getWidth();
+        int h = image.getHeight();
+
+        //one bulk read (also resolves tile-views into their tilemap), then transpose into columns
+        int[] rows = image.getRGB(0, 0, w, h, null, 0, w);
+        int[] columns = new int[w * h];
+        for(int y = 0; y < h; y++){
+            for(int x = 0; x < w; x++){
+                columns[x * h + y] = rows[y * w + x];
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * Bakes the shade variants of a decoded texture, so side-shading and fog only cost an array read while drawing
+     * @param highlight the column-major texels of the texture
+     * @return the shade variants ([side * SHADE_LEVELS + level], variant 0 is the texture itself)
+     */
+    public static int[][] bakeShades(int[] highlight){
+        int[][] shades = new int[2 * Const.SHADE_LEVELS][];
+
+        int[] shadow = new int[highlight.length];
+        for(int i = 0; i < highlight.length; i++){
+            shadow[i] = darker(highlight[i]);
+        }
+
+        shades[0] = highlight;
+        shades[Const.SHADE_LEVELS] = shadow;
+
+        for(int level = 1; level < Const.SHADE_LEVELS; level++){
+            int brightness = ((Const.SHADE_LEVELS - level) << 8) / Const.SHADE_LEVELS;
+            shades[level] = scale(highlight, brightness);
+            shades[Const.SHADE_LEVELS + level] = scale(shadow, brightness);
+        }
+        return shades;
+    }
+
+    /**
+     * Replaces one texture with an already decoded and baked one (has to happen between two frames, see World.applyPendingChanges)
+     * @param texture the texture id
+     * @param shades the shade variants of the new texture (see bakeShades)
+     * @param width the width of the new texture
+     * @param height the height of the new texture
+     */
+    public void setTexture(int texture, int[][] shades, int width, int height){
+        texels[texture] = shades[0];
+        shadedTexels[texture] = shades;
+        textureWidths[texture] = width;
+        textureHeights[texture] = height;
+    }
+
+    /**
+     * Scales the color channels of all given colors (alpha is kept)
+     * @param colors the argb colors
+     * @param brightness the brightness, 256 = unchanged
+     * @return a new array with the scaled colors
+     */
+    private static int[] scale(int[] colors, int brightness){
+        int[] scaled = new int[colors.length];
+        for(int i = 0; i < colors.length; i++){
+            int argb = colors[i];
+            int red = (((argb >> 16) & 0xFF) * brightness) >> 8;
+            int green = (((argb >> 8) & 0xFF) * brightness) >> 8;
+            int blue = ((argb & 0xFF) * brightness) >> 8;
+            scaled[i] = (argb & 0xFF000000) | (red << 16) | (green << 8) | blue;
+        }
+        return scaled;
     }
 
     /**
@@ -44,21 +149,64 @@ public class TextureManager {
      */
     public void loadTileMap(String tileMapName, String directory) throws IOException {
         try{
-            File imageFile = new File(directory + tileMapName);
-            if(!imageFile.exists()){
-                System.out.println("[ERROR] Can not load tilemap-image-file " + imageFile.getAbsolutePath());
-                return;
-            }
-
-            TileMap toAdd = new TileMap(new HashMap<String, TileMapTileInfo>(), ImageIO.read(imageFile));
-            toAdd.loadMap(tileMapName.split("\\.")[0], directory);
-            tileMaps.put(tileMapName.split("\\.")[0], toAdd);
+            TileMap toAdd = readTileMap(tileMapName, directory);
+            if(toAdd != null)
+                addTileMap(tileMapName.split("\\.")[0], toAdd);
         }
         catch(IOException e){
             e.printStackTrace();
         }
     }
 
+    /**
+     * Reads (decodes) a tilemap without adding it, so tilemaps can be decoded on other threads
+     * @param tileMapName the file name of the tilemap-image
+     * @param directory the Directory of the tilemap
+     * @return the tilemap, null if its image does not exist
+     * @throws IOException gets Thrown if the tilemap cannot be read
+     */
+    public static TileMap readTileMap(String tileMapName, String directory) throws IOException {
+        File imageFile = new File(directory + tileMapName);
+        if(!imageFile.exists()){
+            System.out.println("[ERROR] Can not load tilemap-image-file " + imageFile.getAbsolutePath());
+            return null;
+        }
+
+        TileMapLoadEvent event = new TileMapLoadEvent();
+        event.begin();
+
+        BufferedImage image = ImageIO.read(imageFile);
+        TileMap tileMap = new TileMap(new HashMap<String, TileMapTileInfo>(), image);
+        tileMap.loadMap(tileMapName.split("\\.")[0], directory);
+
+        if(event.shouldCommit()){
+            event.tileMap = tileMapName;
+            event.fileBytes = imageFile.length();
+            event.decodedBytes = image == null ? 0 : (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+            event.width = image == null ? 0 : image.getWidth();
+            event.height = image == null ? 0 : image.getHeight();
+            event.commit();
+        }
+        return tileMap;
+    }
+
+    /**
+     * Adds a tilemap, so its tiles can be looked up through getTile
+     * @param name the name of the tilemap (without file extension)
+     * @param tileMap the tilemap
+     */
+    public void addTileMap(String name, TileMap tileMap){
+        tileMaps.put(name, tileMap);
+    }
+
+    /**
+     * @param name the name of the tilemap (without file extension)
+     * @return the tilemap, null if it is not loaded
+     */
+    public TileMap getTileMap(String name){
+        return tileMaps.get(name);
+    }
+
     /**
      * Returns the tile with the given name from the tilemap with a given name
      * @param tileMapName name of the tilemap
@@ -70,84 +218,93 @@ public class TextureManager {
     }
 
     /**
-     * Calculates a textureStripe for the renderer to use
-     * @param texture the texture id to use
-     * @param texX the textureX "coordinate"
-     * @param height the textureY "coordinate"
-     * @param side darkens the color to create a sort of proto-shading
-     * @return the array of colors to be drawn vertically
+     * @param texture the texture id
+     * @return the column-major texels of the texture (texel x, y lies at x * height + y)
      */
-    public int[] getTextureStripe(int texture, double texX, int height, int side){
-
-        if(height >  (4d * Const.VIEWPORT_HEIGHT))
-            height = (int)(4d * Const.VIEWPORT_HEIGHT);
+    public int[] getTexels(int texture){
+        return texels[texture];
+    }
 
-        if(height < 0)
-            return new int[0];
+    /**
+     * @param texture the texture id
+     * @param side the side of the wall (1 is darkened like Color.darker())
+     * @param level the shade level (0 = no fog, see getShadeLevel)
+     * @return the column-major texels of the shaded texture variant
+     */
+    public int[] getShadedTexels(int texture, int side, int level){
+        return shadedTexels[texture][side * Const.SHADE_LEVELS + level];
+    }
 
-        int[] pixels = new int[height];
-        double stepY = (double) textures[texture].getHeight() / height;
-        double yPos = 0;
-        int xPos = (int)(texX * (textures[texture].getWidth()-1));
+    /**
+     * Calculates the fog shade level of something at the given distance
+     * @param dist the (perpendicular) distance to the camera
+     * @return the shade level, 0 if the fog is disabled
+     */
+    public static int getShadeLevel(double dist){
+        if(Const.FOG_DISTANCE <= 0 || dist <= 0)
+            return 0;
 
-        if(texX < 0 || texX > 1){
-            System.out.println("ERROR: texX not inside Texture -> " + texX);
-            Arrays.fill(pixels, 0);
-            return pixels;
-        }
+        return Math.min(Const.SHADE_LEVELS - 1, (int)(dist / Const.FOG_DISTANCE * Const.SHADE_LEVELS));
+    }
 
-        try{
-            for(int i = 0; i < pixels.length; i++){
-                pixels[i] = side == 0 ? textures[texture].getRGB(xPos, (int)yPos) : new Color(textures[texture].getRGB(xPos, (int)yPos)).darker().getRGB();
-                yPos += stepY;
+    /**
+     * @return the memory the textures and their shade variants take up (in bytes)
+     */
+    public long getMemorySize(){
+        long bytes = 0;
+        for(int[][] shades : shadedTexels){
+            for(int[] shade : shades){
+                bytes += (long) shade.length * Integer.BYTES;
             }
         }
-        catch(ArrayIndexOutOfBoundsException e){
-            System.out.println(xPos + " " + yPos);
-        }
-
-        return pixels;
+        return bytes;
     }
 
     /**
-     * basically does the same as the getTextureStripe Method but for the floor
-     * CURRENTLY: Not used
+     * @return the amount of loaded textures
      */
-    public int[] getFloorStripe(double dist, double floorWallX, double floorWallY, int drawHeight, double posX, double posY, World world){
-
-        if(drawHeight < 0)
-            return  new int[0];
-
-        int[] pixels = new int[drawHeight];
-        double distPlayer = 0;
-        double currentDist;
-
-        for(int y = 0; y < drawHeight; y++){
-            currentDist = (double) Const.VIEWPORT_HEIGHT / (2 * y - Const.VIEWPORT_HEIGHT);
-            double weight = (currentDist - distPlayer) / (dist - distPlayer);
-            double currentFloorX = weight * floorWallX + (1 - weight) * posX;
-            double currentFloorY = weight * floorWallY + (1 - weight) * posY;
-
-            if(currentFloorX > world.Width() || currentFloorX < 0)
-                continue;
-            if(currentFloorY > world.Height() || currentFloorY < 0)
-                continue;
+    public int getTextureCount(){
+        return texels.length;
+    }
 
-            BufferedImage floorTexture = textures[world.getCellFloor((int) currentFloorX, (int) currentFloorY)];
+    /**
+     * @param texture the texture id
+     * @return the width of the texture
+     */
+    public int getTextureWidth(int texture){
+        return textureWidths[texture];
+    }
 
-            //Floor
-            int texX, texY;
-            texX = (int)(currentFloorX * floorTexture.getWidth()) % floorTexture.getWidth();
-            texY = (int)(currentFloorY * floorTexture.getHeight()) % floorTexture.getHeight();
+    /**
+     * @param texture the texture id
+     * @return the height of the texture
+     */
+    public int getTextureHeight(int texture){
+        return textureHeights[texture];
+    }
 
-            if(texX > floorTexture.getWidth() || texX < 0)
-                continue;
-            if(texY > floorTexture.getHeight() || texY < 0)
-                continue;
+    /**
+     * Finds the column of a texture belonging to a textureX coordinate
+     * @param texture the texture id
+     * @param texX the textureX "coordinate" (0-1, rounding errors outside of it get clamped)
+     * @return the index of the first texel of the column inside getTexels
+     */
+    public int getTextureColumn(int texture, double texX){
+        //called for every column of every frame, so nothing gets logged here
+        texX = Math.max(0, Math.min(1, texX));
 
-            pixels[y] = floorTexture.getRGB(texX, texY);
-        }
+        return (int)(texX * (textureWidths[texture]-1)) * textureHeights[texture];
+    }
 
-        return pixels;
+    /**
+     * Darkens a color exactly like Color.darker() does, without creating any Color objects (only used for baking)
+     * @param rgb the color to darken
+     * @return the darkened (opaque) color
+     */
+    public static int darker(int rgb){
+        int red = (int)(((rgb >> 16) & 0xFF) * DARKER_FACTOR);
+        int green = (int)(((rgb >> 8) & 0xFF) * DARKER_FACTOR);
+        int blue = (int)((rgb & 0xFF) * DARKER_FACTOR);
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
     }
 }
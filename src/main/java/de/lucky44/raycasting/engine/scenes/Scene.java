@@ -26,6 +26,13 @@ public abstract class Scene {
      */
     public abstract void Update();
 
+    /**
+     * Gets called on the simulation thread after every Update, hands the updated state over to the render thread
+     */
+    public void Publish(){
+
+    }
+
     /**
      * gets called by the TimeManager on every Draw tick
      * @param g the Graphics2D instance to draw on
@@ -0,0 +1,173 @@
+package de.lucky44.raycasting.engine.time;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ * Times every stage of a frame and keeps a LatencyHistogram per stage
+ * A stage can be recorded several times per frame, its durations get summed up and recorded once the frame ends
+ * Written by the render thread only, the histograms are meant to be read there as well (DEBUG-overlay, writeCsv)
+ * @author Nick Balischewski
+ */
+public class FrameProfiler {
+
+    /**
+     * The stages of a frame
+     */
+    public enum Stage {
+        /**
+         * Clearing the screen buffer and the renderables of the last frame
+         */
+        FLUSH("flush"),
+        /**
+         * The DEBUG-map with everything drawn on top of it and the DEBUG-menus
+         */
+        MAP("map"),
+        /**
+         * Casting the rays (with parallel raycasting this includes rasterising the walls, floor and ceiling)
+         */
+        RAYCAST("raycast"),
+        /**
+         * Projecting the sprites of the entities
+         */
+        ENTITIES("entities"),
+        /**
+         * Rasterising the floor, ceiling and walls
+         */
+        WALLS("walls"),
+        /**
+         * Sorting and rasterising the sprites
+         */
+        SPRITES("sprites"),
+        /**
+         * Drawing the screen buffer and showing the back buffer
+         */
+        PRESENT("present"),
+        /**
+         * The whole frame
+         */
+        FRAME("frame");
+
+        /**
+         * The name shown in the DEBUG-overlay and the csv
+         */
+        public final String label;
+
+        /**
+         * @param label the name shown in the DEBUG-overlay and the csv
+         */
+        Stage(String label){
+            this.label = label;
+        }
+    }
+
+    /**
+     * The histogram of every stage (by ordinal)
+     */
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    /**
+     * The summed up durations of every stage during the current frame (in nanoseconds)
+     */
+    private final long[] current = new long[Stage.values().length];
+    /**
+     * Was the stage recorded during the current frame
+     */
+    private final boolean[] recorded = new boolean[Stage.values().length];
+    /**
+     * Should all histograms be reset once the current frame ends (can be set from any thread)
+     */
+    private volatile boolean resetRequested = false;
+
+    /**
+     * Creates the empty histograms
+     */
+    public FrameProfiler(){
+        for(int i = 0; i < histograms.length; i++){
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Adds the time since startTime to a stage of the current frame
+     * @param stage the stage
+     * @param startTime when the stage started (System.nanoTime)
+     * @return the current time, so the next stage can start right away
+     */
+    public long record(Stage stage, long startTime){
+        long now = System.nanoTime();
+        current[stage.ordinal()] += now - startTime;
+        recorded[stage.ordinal()] = true;
+        return now;
+    }
+
+    /**
+     * Ends the current frame: every stage which was recorded during it gets added to its histogram
+     */
+    public void endFrame(){
+        if(resetRequested){
+            resetRequested = false;
+            for(LatencyHistogram histogram : histograms){
+                histogram.reset();
+            }
+        }
+
+        for(int i = 0; i < histograms.length; i++){
+            if(recorded[i])
+                histograms[i].record(current[i]);
+
+            current[i] = 0;
+            recorded[i] = false;
+        }
+    }
+
+    /**
+     * Resets all histograms once the current frame ended
+     */
+    public void requestReset(){
+        resetRequested = true;
+    }
+
+    /**
+     * @param stage the stage
+     * @return the histogram of the stage
+     */
+    public LatencyHistogram getHistogram(Stage stage){
+        return histograms[stage.ordinal()];
+    }
+
+    /**
+     * Describes a stage in one line for the DEBUG-overlay
+     * @param stage the stage
+     * @return p50, p99 and max of the stage (in milliseconds)
+     */
+    public String describe(Stage stage){
+        LatencyHistogram histogram = getHistogram(stage);
+        return String.format(Locale.ROOT, "%-9s %7.2f %7.2f %7.2f", stage.label,
+                histogram.getPercentile(0.5) / 1e6, histogram.getPercentile(0.99) / 1e6, histogram.getMax() / 1e6);
+    }
+
+    /**
+     * Writes the statistics of every stage into a csv file (one line per stage, durations in microseconds)
+     * @param file the file
+     * @throws IOException gets thrown when the file couldn't be written
+     */
+    public void writeCsv(File file) throws IOException{
+        try(PrintWriter writer = new PrintWriter(new FileWriter(file))){
+            writer.println("stage,frames,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+
+            for(Stage stage : Stage.values()){
+                LatencyHistogram histogram = getHistogram(stage);
+                writer.println(String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%.1f,%.1f,%.1f,%.1f", stage.label, histogram.getCount(),
+                        histogram.getMean() / 1e3, histogram.getPercentile(0.5) / 1e3, histogram.getPercentile(0.9) / 1e3,
+                        histogram.getPercentile(0.99) / 1e3, histogram.getPercentile(0.999) / 1e3, histogram.getMax() / 1e3));
+            }
+
+            //PrintWriter swallows its IOExceptions
+            if(writer.checkError())
+                throw new IOException("Could not write " + file);
+        }
+    }
+}
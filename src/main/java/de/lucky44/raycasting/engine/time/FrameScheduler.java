@@ -0,0 +1,106 @@
+package de.lucky44.raycasting.engine.time;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for update- and frame-deadlines without burning a core
+ * The thread gets parked until shortly before the deadline and only spins for the last bit, since parking alone wakes up too late
+ * How long that last bit is follows how late parking actually wakes up on this machine, so the spinning stays as short as possible
+ * Also keeps track of how late every wakeup was (the jitter)
+ * @author Nick Balischewski
+ */
+public class FrameScheduler {
+
+    /**
+     * The shortest and longest the spin window can become (in nanoseconds)
+     */
+    private static final long MIN_SPIN_WINDOW = 50_000, MAX_SPIN_WINDOW = 1_000_000;
+    /**
+     * The spin window before any park was measured (in nanoseconds)
+     */
+    private static final long INITIAL_SPIN_WINDOW = 250_000;
+    /**
+     * How many times the average park overshoot the spin window is, so a slightly later wakeup doesn't miss the deadline
+     */
+    private static final long SPIN_MARGIN = 2;
+
+    /**
+     * How long before a deadline the scheduler stops parking and starts spinning (in nanoseconds)
+     */
+    private long spinWindow = INITIAL_SPIN_WINDOW;
+    /**
+     * The average of how much later than asked parkNanos returned (in nanoseconds, moving average over roughly the last 8 parks)
+     */
+    private long parkOvershoot = INITIAL_SPIN_WINDOW / SPIN_MARGIN;
+
+    /**
+     * The summed up lateness of all wakeups since the last reset (in nanoseconds)
+     */
+    private long latenessSum = 0;
+    /**
+     * The highest lateness since the last reset (in nanoseconds)
+     */
+    private long latenessMax = 0;
+    /**
+     * The amount of wakeups since the last reset
+     */
+    private int wakeups = 0;
+
+    /**
+     * Blocks until the given deadline
+     * @param deadline the deadline (System.nanoTime based)
+     * @return how late the thread woke up (in nanoseconds)
+     */
+    public long waitUntil(long deadline){
+        long remaining = deadline - System.nanoTime();
+        while(remaining > spinWindow){
+            long wakeup = deadline - spinWindow;
+            LockSupport.parkNanos(remaining - spinWindow);
+            long now = System.nanoTime();
+            measureOvershoot(now - wakeup);
+            remaining = deadline - now;
+        }
+
+        while(System.nanoTime() < deadline){
+            Thread.onSpinWait();
+        }
+
+        long lateness = System.nanoTime() - deadline;
+        latenessSum += lateness;
+        latenessMax = Math.max(latenessMax, lateness);
+        wakeups++;
+        return lateness;
+    }
+
+    /**
+     * Adds how late a park returned to the average and fits the spin window to it
+     * @param overshoot how much later than asked the park returned (in nanoseconds, negative for early returns)
+     */
+    private void measureOvershoot(long overshoot){
+        parkOvershoot += (Math.max(0, overshoot) - parkOvershoot) / 8;
+        spinWindow = Math.max(MIN_SPIN_WINDOW, Math.min(MAX_SPIN_WINDOW, parkOvershoot * SPIN_MARGIN));
+    }
+
+    /**
+     * @return the average lateness of all wakeups since the last reset (in microseconds)
+     */
+    public double getAverageJitter(){
+        return wakeups == 0 ? 0 : latenessSum / 1000d / wakeups;
+    }
+
+    /**
+     * @return the highest lateness since the last reset (in microseconds)
+     */
+    public double getMaxJitter(){
+        return latenessMax / 1000d;
+    }
+
+    /**
+     * Resets the jitter statistics
+     */
+    public void resetStatistics(){
+        latenessSum = 0;
+        latenessMax = 0;
+        wakeups = 0;
+    }
+}
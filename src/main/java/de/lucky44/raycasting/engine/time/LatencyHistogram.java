@@ -0,0 +1,134 @@
+package de.lucky44.raycasting.engine.time;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of durations with a fixed amount of memory, no matter how many durations get recorded
+ * The buckets grow logarithmically: every power of two is split into SUB_BUCKETS buckets, so a percentile is off by at most 1/SUB_BUCKETS
+ * Not thread-safe, every histogram is meant to be written by one thread
+ * @author Nick Balischewski
+ */
+public class LatencyHistogram {
+
+    /**
+     * The log2 of the amount of buckets every power of two is split into
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+    /**
+     * The amount of buckets every power of two is split into
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /**
+     * The highest power of two a duration can reach (2^40 ns are about 18 minutes, longer durations land in the last bucket)
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The amount of durations per bucket
+     */
+    private final long[] counts = new long[bucketOf(1L << MAX_EXPONENT) + 1];
+    /**
+     * The amount of recorded durations
+     */
+    private long count = 0;
+    /**
+     * The sum of all recorded durations (in nanoseconds)
+     */
+    private long sum = 0;
+    /**
+     * The longest recorded duration (in nanoseconds)
+     */
+    private long max = 0;
+
+    /**
+     * Records a duration
+     * @param nanos the duration (in nanoseconds)
+     */
+    public void record(long nanos){
+        if(nanos < 0)
+            nanos = 0;
+
+        counts[Math.min(counts.length - 1, bucketOf(nanos))]++;
+        count++;
+        sum += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Finds the bucket of a duration
+     * Durations below SUB_BUCKETS get a bucket each, after that every power of two is split into SUB_BUCKETS buckets
+     * @param nanos the duration (in nanoseconds, not negative)
+     * @return the index of the bucket
+     */
+    private static int bucketOf(long nanos){
+        if(nanos < SUB_BUCKETS)
+            return (int) nanos;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int)(nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @param bucket the index of the bucket
+     * @return the highest duration falling into the bucket (in nanoseconds)
+     */
+    private static long upperBound(int bucket){
+        if(bucket < SUB_BUCKETS)
+            return bucket;
+
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * Finds the duration the given share of all durations lies below
+     * @param percentile the share (0-1, e.g. 0.99 for the p99)
+     * @return the duration (in nanoseconds, at most 1/SUB_BUCKETS too high), 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile){
+        if(count == 0)
+            return 0;
+
+        long rank = Math.max(1, (long)Math.ceil(percentile * count));
+        long seen = 0;
+        for(int bucket = 0; bucket < counts.length; bucket++){
+            seen += counts[bucket];
+            if(seen >= rank)
+                return Math.min(max, upperBound(bucket));
+        }
+        return max;
+    }
+
+    /**
+     * @return the amount of recorded durations
+     */
+    public long getCount(){
+        return count;
+    }
+
+    /**
+     * @return the average of all recorded durations (in nanoseconds), 0 if nothing was recorded
+     */
+    public double getMean(){
+        return count == 0 ? 0 : sum / (double) count;
+    }
+
+    /**
+     * @return the longest recorded duration (in nanoseconds)
+     */
+    public long getMax(){
+        return max;
+    }
+
+    /**
+     * Forgets all recorded durations
+     */
+    public void reset(){
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        max = 0;
+    }
+}
@@ -5,42 +5,77 @@ import de.lucky44.raycasting.engine.architecture.RaycasterPanel;
 
 /**
  * The time-manager responsible for managing all the update and draw calls
+ * Updates run on the simulation thread (simulate), frames on the render thread (render)
  *
  * Note: this class is fucked beyond belief...
  *
  * @author Nick Balischewski
  */
-public class Time implements Runnable{
+public class Time {
     /**
      * The Panel Instance which is using this time instance
      */
     private final RaycasterPanel panel;
 
     /**
-     * LIES
+     * The amount of frames presented during the last second
      */
-    public static int FPS;
+    public static volatile int FPS;
 
     /**
      * MORE LIES
      */
-    public static long INTERPOLATED_FPS;
+    public static volatile long INTERPOLATED_FPS;
 
     /**
      * EVEN MORE LIES
      */
-    public static int UPS;
+    public static volatile int UPS;
 
     /**
-     * behaves a bit weird
+     * The average lateness of the render thread's wakeups during the last second (in microseconds)
      */
-    public static double deltaTime;
+    public static volatile double JITTER_AVG;
+
+    /**
+     * The highest lateness of the render thread's wakeups during the last second (in microseconds)
+     */
+    public static volatile double JITTER_MAX;
+
+    /**
+     * Times the stages of every frame (render thread)
+     */
+    public static final FrameProfiler PROFILER = new FrameProfiler();
+
+    /**
+     * The time since the last update (written by the simulation thread)
+     */
+    public static volatile double deltaTime;
+
+    /**
+     * The time since the last frame (written by the render thread, used by animations)
+     */
+    public static volatile double frameDeltaTime;
 
     /**
      * No lies
      * When false, the threads will try to exit
      */
-    public static boolean running = true;
+    public static volatile boolean running = true;
+
+    /**
+     * If a loop falls behind by more than this many updates or frames, it skips them instead of catching up
+     */
+    private static final int MAX_CATCH_UP = 5;
+
+    /**
+     * Parks the simulation thread until the next update is due
+     */
+    private final FrameScheduler updateScheduler = new FrameScheduler();
+    /**
+     * Parks the render thread until the next frame is due
+     */
+    private final FrameScheduler frameScheduler = new FrameScheduler();
 
     /**
      * Initializes the Panel instance
@@ -51,55 +86,72 @@ public class Time implements Runnable{
     }
 
     /**
-     * Gets called when the Thread is running
+     * The simulation loop, updates the scene UPS_CAP times per second
      */
-    @Override
-    public void run() {
-        //FPS
-        double timePerFrame = 1000000000.0 / Const.FPS_CAP;
-        int frames = 0;
-        double deltaF = 0;
-
-        //UPS
-        double timePerUpdate = 1000000000.0 / Const.UPS_CAP;
+    public void simulate() {
+        long timePerUpdate = (long)(1000000000.0 / Const.UPS_CAP);
         int updates = 0;
-        double deltaU = 0;
 
-        long lastCheck = System.currentTimeMillis();
-        long previousTime = System.nanoTime();
-
-        long previousFrameTime = System.currentTimeMillis();
+        long lastCheck = System.nanoTime();
+        long previousUpdateTime = lastCheck;
+        long nextUpdate = lastCheck + timePerUpdate;
 
         while(running){
+            updateScheduler.waitUntil(nextUpdate);
             long currentTime = System.nanoTime();
-            deltaU += (currentTime - previousTime) / timePerUpdate;
-            deltaF += (currentTime - previousTime) / timePerFrame;
-            previousTime = currentTime;
-
-            if(deltaU >= 1){
-                panel.updateScene();
-                updates++;
-                deltaU--;
+
+            deltaTime = (currentTime - previousUpdateTime) / 1000000.0 * Const.deltaTimeMultiplier;
+            previousUpdateTime = currentTime;
+
+            panel.updateScene();
+            updates++;
+            nextUpdate += timePerUpdate;
+
+            if(currentTime - nextUpdate > MAX_CATCH_UP * timePerUpdate)
+                nextUpdate = currentTime + timePerUpdate;
+
+            if(currentTime - lastCheck >= 1000000000L){
+                lastCheck = currentTime;
+                Time.UPS = updates;
+                updates = 0;
             }
+        }
+    }
+
+    /**
+     * The render loop, renders FPS_CAP frames per second from the newest published simulation state
+     */
+    public void render() {
+        long timePerFrame = (long)(1000000000.0 / Const.FPS_CAP);
+        int frames = 0;
+
+        long lastCheck = System.nanoTime();
+        long previousFrameTime = lastCheck;
+        long nextFrame = lastCheck + timePerFrame;
+
+        while(running){
+            frameScheduler.waitUntil(nextFrame);
+            long currentTime = System.nanoTime();
 
-            if(deltaF >= 1){
-                panel.repaint();
+            frameDeltaTime = (currentTime - previousFrameTime) / 1000000.0 * Const.deltaTimeMultiplier;
+            //INTERPOLATED_FPS = 1 / (System.currentTimeMillis() - previousFrameTime);
+            previousFrameTime = currentTime;
+
+            if(panel.renderFrame())
                 frames++;
-                deltaF--;
+            nextFrame += timePerFrame;
 
-                deltaTime = (System.currentTimeMillis() - previousFrameTime) * Const.deltaTimeMultiplier;
-                //INTERPOLATED_FPS = 1 / (System.currentTimeMillis() - previousFrameTime);
-                previousFrameTime = System.currentTimeMillis();
-            }
+            if(currentTime - nextFrame > MAX_CATCH_UP * timePerFrame)
+                nextFrame = currentTime + timePerFrame;
 
-            if(System.currentTimeMillis() - lastCheck >= 1000){
-                lastCheck = System.currentTimeMillis();
+            if(currentTime - lastCheck >= 1000000000L){
+                lastCheck = currentTime;
                 Time.FPS = frames;
-                Time.UPS = updates;
+                Time.JITTER_AVG = frameScheduler.getAverageJitter();
+                Time.JITTER_MAX = frameScheduler.getMaxJitter();
+                frameScheduler.resetStatistics();
                 frames = 0;
-                updates = 0;
             }
         }
-
     }
 }
@@ -0,0 +1,79 @@
+package de.lucky44.raycasting.engine.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A lock-free handoff between exactly one producer thread and one consumer thread
+ * The producer fills the back slot and publishes it, the consumer always gets the newest published slot
+ * Neither side ever waits for the other and no slot is ever touched by both threads at the same time
+ * @param <T> the (mutable) type of the slots, they get reused instead of reallocated
+ * @author Nick Balischewski
+ */
+public class TripleBuffer<T> {
+
+    /**
+     * Set in the shared state when the middle slot holds something the consumer has not seen yet
+     */
+    private static final int FRESH = 4;
+    /**
+     * Masks the slot index out of the shared state
+     */
+    private static final int INDEX = 3;
+
+    /**
+     * The three slots
+     */
+    private final Object[] slots = new Object[3];
+    /**
+     * The slot between both threads (index + FRESH flag), the only state they share
+     */
+    private final AtomicInteger middle = new AtomicInteger(1);
+    /**
+     * The slot only the producer writes into
+     */
+    private int back = 0;
+    /**
+     * The slot only the consumer reads from
+     */
+    private int front = 2;
+
+    /**
+     * Creates all three slots
+     * @param factory creates one slot
+     */
+    public TripleBuffer(Supplier<T> factory){
+        for(int i = 0; i < slots.length; i++){
+            slots[i] = factory.get();
+        }
+    }
+
+    /**
+     * PRODUCER ONLY
+     * @return the slot which is supposed to be filled next
+     */
+    @SuppressWarnings("unchecked")
+    public T back(){
+        return (T) slots[back];
+    }
+
+    /**
+     * PRODUCER ONLY
+     * Hands the filled back slot over to the consumer and takes the old middle slot as the new back slot
+     */
+    public void publish(){
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * CONSUMER ONLY
+     * @return the newest published slot (the same one as before if nothing new was published)
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire(){
+        if((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+
+        return (T) slots[front];
+    }
+}
@@ -0,0 +1,303 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.animation.Animation;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
+import de.lucky44.raycasting.engine.rendering.TextureManager;
+import de.lucky44.raycasting.engine.util.TileMap;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the images of a world as a graph of tasks on a bounded pool
+ * Every tilemap and every image file gets decoded on its own task, tiles wait for (only) their tilemap
+ * and animations are only loaded once, no matter how many entities use them
+ * The graph is built on the loading thread, only the decoding runs on the pool
+ * Also keeps track of how long each phase of the loading took
+ * @author Nick Balischewski
+ */
+public class AssetLoader implements AutoCloseable {
+
+    /**
+     * The amount of decoding threads (at least 2, decoding also waits on the disk)
+     */
+    private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * The pool the decoding runs on
+     */
+    private final ExecutorService pool;
+    /**
+     * The tilemaps by name (without file extension)
+     */
+    private final Map<String, CompletableFuture<TileMap>> tileMaps = new LinkedHashMap<>();
+    /**
+     * The animations by name, shared with the World so every animation is only loaded once
+     */
+    private final Map<String, CompletableFuture<Animation>> animations;
+
+    /**
+     * When the loading started
+     */
+    private final long startTime = System.nanoTime();
+    /**
+     * When the last phase ended
+     */
+    private long phaseTime = startTime;
+    /**
+     * The duration of every finished phase (in milliseconds)
+     */
+    private final Map<String, Double> phases = new LinkedHashMap<>();
+
+    /**
+     * Starts the pool
+     * @param animations the animations which were already loaded (or are loading)
+     */
+    public AssetLoader(Map<String, CompletableFuture<Animation>> animations){
+        this.animations = animations;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        pool = Executors.newFixedThreadPool(THREADS, task -> {
+            Thread thread = new Thread(task, "World-Loader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts decoding a tilemap
+     * @param tileMapName the file name of the tilemap-image
+     * @param directory the directory of the tilemap
+     */
+    public void loadTileMap(String tileMapName, String directory){
+        tileMaps.put(tileMapName.split("\\.")[0], CompletableFuture.supplyAsync(() -> {
+            try{
+                return TextureManager.readTileMap(tileMapName, directory);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }, pool));
+    }
+
+    /**
+     * Adds a tilemap which is already loaded, so tiles of it can be loaded as well
+     * @param name the name of the tilemap (without file extension)
+     * @param tileMap the tilemap
+     */
+    public void addTileMap(String name, TileMap tileMap){
+        tileMaps.put(name, CompletableFuture.completedFuture(tileMap));
+    }
+
+    /**
+     * @return all tilemaps which were started, by name
+     */
+    public Map<String, CompletableFuture<TileMap>> getTileMaps(){
+        return tileMaps;
+    }
+
+    /**
+     * Starts loading an image reference, either "tilemap &lt;tilemap&gt; &lt;tile&gt;" or the name of a file
+     * Tiles only wait for their tilemap, files get decoded right away
+     * @param reference the reference
+     * @param directory the directory files are looked up in
+     * @return the image, completes with null if it couldn't be found
+     */
+    public CompletableFuture<BufferedImage> image(String reference, String directory){
+        String[] parts = reference.split(" ");
+
+        if(parts[0].equalsIgnoreCase("tilemap") && parts.length >= 3){
+            CompletableFuture<TileMap> tileMap = tileMaps.get(parts[1]);
+            if(tileMap == null){
+                System.out.println("[ERROR] Could not load tile " + parts[2] + ", tilemap " + parts[1] + " is not loaded");
+                return CompletableFuture.completedFuture(null);
+            }
+
+            return tileMap.thenApply(map -> {
+                BufferedImage tile = map == null ? null : map.getTile(parts[2]);
+                if(tile == null)
+                    System.out.println("[ERROR] Could not load tile " + parts[2] + " from tilemap " + parts[1]);
+                return tile;
+            });
+        }
+
+        return decode(new File(directory + reference));
+    }
+
+    /**
+     * Starts decoding an image file
+     * @param imageFile the file
+     * @return the image, completes with null if the file does not exist
+     */
+    private CompletableFuture<BufferedImage> decode(File imageFile){
+        return CompletableFuture.supplyAsync(() -> {
+            if(!imageFile.exists()){
+                System.out.println("[ERROR] Could not load " + imageFile.getName());
+                return null;
+            }
+
+            try{
+                return ImageIO.read(imageFile);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+    }
+
+    /**
+     * Starts loading a sprite frame
+     * @param reference the reference of the image (see image)
+     * @param directory the directory files are looked up in
+     * @return the frame, completes with null if the image couldn't be found
+     */
+    public CompletableFuture<SpriteFrame> spriteFrame(String reference, String directory){
+        return image(reference, directory).thenApplyAsync(image -> image == null ? null : new SpriteFrame(image), pool);
+    }
+
+    /**
+     * Starts loading the animation with the given name (only once, later calls get the same animation)
+     * The .a file itself is read right away, its frames are decoded on the pool
+     * @param animationName the animation-name
+     * @param directory the entity directory
+     * @return the Animation
+     * @throws IOException gets thrown when the .a file couldn't be read
+     */
+    public CompletableFuture<Animation> animation(String animationName, String directory) throws IOException {
+        CompletableFuture<Animation> loaded = animations.get(animationName);
+        if(loaded != null)
+            return loaded;
+
+        String animDirectory = directory + "sprites/anim/" + animationName + "/";
+
+        //every part is one frame or a whole spritesheet, in the order they have to end up in
+        List<CompletableFuture<List<BufferedImage>>> parts = new ArrayList<>();
+        String name = "TMP";
+        double frameTime = 0.25d;
+
+        //Types => 0 -> individual | 1 -> singleAnimSpritesheet | 2 -> multiple anim spritesheet
+        int frameType = 0;
+        int numOfFrames = 0;
+
+        String spriteSheetName = "";
+        String fileType = "";
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(animDirectory + animationName + ".a"))){
+            String line = reader.readLine();
+
+            while(line != null){
+                String[] lineParts = line.split(" ");
+
+                switch(lineParts[0].toLowerCase()){
+                    case("name:") -> name = lineParts[1];
+                    case("type:") -> frameType = lineParts[1].equalsIgnoreCase("frames") ? 0 : lineParts[1].equalsIgnoreCase("spritesheet") ? 1 : 2;
+                    case("numframes:") -> numOfFrames = Integer.parseInt(lineParts[1]);
+                    case("frametime:") -> frameTime = Double.parseDouble(lineParts[1]);
+                    case("spritesheet:") -> spriteSheetName = lineParts[1];
+                    case("filetype:") -> fileType = lineParts[1];
+                    case("frame:") -> parts.add(image(line.substring(line.indexOf(' ') + 1), animDirectory)
+                            .thenApply(frame -> frame == null ? List.of() : List.of(frame)));
+                }
+                line = reader.readLine();
+            }
+        }
+
+        if(frameType == 1){
+            int frames = numOfFrames;
+            parts.add(decode(new File(animDirectory + spriteSheetName + "." + fileType)).thenApply(sheet -> {
+                List<BufferedImage> sheetFrames = new ArrayList<>();
+                if(sheet == null)
+                    return sheetFrames;
+
+                int frameWidth = sheet.getWidth() / frames;
+                for(int i = 0; i < frames; i++){
+                    sheetFrames.add(sheet.getSubimage(frameWidth * i, 0, frameWidth, sheet.getHeight()));
+                }
+                return sheetFrames;
+            }));
+        }
+
+        String finalName = name;
+        double finalFrameTime = frameTime;
+        CompletableFuture<Animation> animation = CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new)).thenApplyAsync(done -> {
+            List<BufferedImage> frames = new ArrayList<>();
+            for(CompletableFuture<List<BufferedImage>> part : parts){
+                frames.addAll(part.join());
+            }
+
+            System.out.println("Loaded Animation " + animationName + " and added it to the buffer");
+            return new Animation(finalName, SpriteFrame.of(frames.toArray(BufferedImage[]::new)), finalFrameTime);
+        }, pool);
+
+        animations.put(animationName, animation);
+        return animation;
+    }
+
+    /**
+     * Waits for a task
+     * @param task the task
+     * @param <T> the result type of the task
+     * @return the result of the task
+     * @throws IOException gets thrown if the task failed to read a file
+     */
+    public static <T> T join(CompletableFuture<T> task) throws IOException{
+        try{
+            return task.join();
+        }
+        catch(CompletionException e){
+            if(e.getCause() instanceof UncheckedIOException io)
+                throw io.getCause();
+            if(e.getCause() instanceof IOException io)
+                throw io;
+            throw e;
+        }
+    }
+
+    /**
+     * Ends the current phase of the loading
+     * @param name the name of the phase
+     */
+    public void phase(String name){
+        long now = System.nanoTime();
+        phases.put(name, (now - phaseTime) / 1e6);
+        phaseTime = now;
+    }
+
+    /**
+     * @return how long the loading and each of its phases took, in readable form
+     */
+    public String report(){
+        StringBuilder report = new StringBuilder(String.format("%.1f ms (", (phaseTime - startTime) / 1e6));
+
+        boolean first = true;
+        for(Map.Entry<String, Double> phase : phases.entrySet()){
+            if(!first)
+                report.append(", ");
+            report.append(phase.getKey()).append(String.format(" %.1f ms", phase.getValue()));
+            first = false;
+        }
+        return report.append(")").toString();
+    }
+
+    /**
+     * Shuts the pool down (tasks which are still running get to finish)
+     */
+    @Override
+    public void close(){
+        pool.shutdown();
+    }
+}
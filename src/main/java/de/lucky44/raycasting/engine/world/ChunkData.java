@@ -0,0 +1,16 @@
+package de.lucky44.raycasting.engine.world;
+
+import java.util.List;
+
+/**
+ * Simple immutable data holder describing one chunk of a world as it is stored, before its PolyWalls and entities are built
+ * @param wallData the wall-layer (WorldChunk.CELLS cells, see WorldChunk.cellIndex, cells outside the map are SOLID_BORDER)
+ * @param floorData the floor-layer (WorldChunk.CELLS cells)
+ * @param roofData the ceiling-layer (WorldChunk.CELLS cells)
+ * @param polyWalls the PolyWalls passing through the chunk
+ * @param entities the entities standing in the chunk
+ * @author Nick Balischewski
+ */
+public record ChunkData(short[] wallData, short[] floorData, short[] roofData, List<PolyWallData> polyWalls, List<EntityData> entities) {
+
+}
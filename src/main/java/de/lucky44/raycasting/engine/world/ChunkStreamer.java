@@ -0,0 +1,339 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.Const;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+
+/**
+ * Pages the chunks of a world in and out around a position (the player)
+ * Every chunk within CHUNK_LOAD_RADIUS gets loaded in the background, nearest first, the chunk the position lies in right away
+ * As soon as all loaded chunks take up more than CHUNK_MEMORY_BUDGET, the least recently needed ones outside the radius get evicted
+ * Reading a chunk (getChunk) never locks, so the render thread can walk the chunks while they are being streamed
+ * @author Nick Balischewski
+ */
+public class ChunkStreamer {
+
+    /**
+     * Builds a chunk (called on the loading thread)
+     */
+    @FunctionalInterface
+    public interface ChunkLoader {
+        /**
+         * @param chunkX the x coordinate of the chunk
+         * @param chunkY the y coordinate of the chunk
+         * @return the chunk
+         * @throws IOException gets thrown when the chunk couldn't be read
+         */
+        WorldChunk load(int chunkX, int chunkY) throws IOException;
+    }
+
+    /**
+     * The amount of chunks in x and y direction
+     */
+    @Getter
+    private final int chunksX, chunksY;
+    /**
+     * All chunks (row-major), null while a chunk is not loaded
+     */
+    private final AtomicReferenceArray<WorldChunk> chunks;
+    /**
+     * The loaded chunks by index, least recently needed first
+     */
+    private final LinkedHashMap<Integer, WorldChunk> resident = new LinkedHashMap<>(16, 0.75f, true);
+    /**
+     * The chunks which are currently being loaded by index
+     */
+    private final Map<Integer, CompletableFuture<WorldChunk>> loading = new HashMap<>();
+
+    /**
+     * Builds the chunks
+     */
+    private final ChunkLoader loader;
+    /**
+     * Gets called (while holding the lock of the streamer) whenever chunks were loaded or evicted
+     */
+    private final Runnable onChange;
+    /**
+     * The single loading thread, chunks are loaded in the order they were requested
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * How much memory the loaded chunks may take up before chunks get evicted (in bytes)
+     */
+    private final long memoryBudget = Const.CHUNK_MEMORY_BUDGET * 1024L * 1024L;
+    /**
+     * How much memory the loaded chunks take up (in bytes)
+     */
+    @Getter
+    private volatile long residentBytes = 0;
+    /**
+     * The chunk everything is streamed around
+     */
+    private int centerX = Integer.MIN_VALUE, centerY = Integer.MIN_VALUE;
+
+    /**
+     * Initializes the streamer, no chunk is loaded until streamAround or loadAround is called
+     * @param chunksX the amount of chunks in x direction
+     * @param chunksY the amount of chunks in y direction
+     * @param loader builds the chunks
+     * @param onChange gets called whenever chunks were loaded or evicted
+     */
+    public ChunkStreamer(int chunksX, int chunksY, ChunkLoader loader, Runnable onChange){
+        this.chunksX = chunksX;
+        this.chunksY = chunksY;
+        this.loader = loader;
+        this.onChange = onChange;
+        chunks = new AtomicReferenceArray<>(chunksX * chunksY);
+
+        //the thread ends while nothing needs to be loaded, so streamers of unloaded worlds do not keep it around
+        executor = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+            Thread thread = new Thread(task, "Chunk-Loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns a chunk without locking (meant for the renderer)
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @return the chunk, null if it lies outside the map or is not loaded
+     */
+    public WorldChunk getChunk(int chunkX, int chunkY){
+        if(chunkX < 0 || chunkY < 0 || chunkX >= chunksX || chunkY >= chunksY)
+            return null;
+
+        return chunks.get(chunkY * chunksX + chunkX);
+    }
+
+    /**
+     * Starts loading all chunks around the position which are not loaded yet, only does something once the position entered another chunk
+     * Only the chunk the position lies in is waited for, everything else gets loaded in the background
+     * @param x the x coordinate of the position (in cells)
+     * @param y the y coordinate of the position (in cells)
+     */
+    public void streamAround(double x, double y){
+        update(x, y, false);
+    }
+
+    /**
+     * Loads all chunks around the position and waits until they are loaded
+     * @param x the x coordinate of the position (in cells)
+     * @param y the y coordinate of the position (in cells)
+     */
+    public void loadAround(double x, double y){
+        update(x, y, true);
+    }
+
+    /**
+     * Requests the chunks around the position and waits for them
+     * @param x the x coordinate of the position (in cells)
+     * @param y the y coordinate of the position (in cells)
+     * @param waitForAll true to wait for all chunks, false to only wait for the chunk the position lies in
+     */
+    private void update(double x, double y, boolean waitForAll){
+        int chunkX = WorldChunk.chunkOf(x, chunksX);
+        int chunkY = WorldChunk.chunkOf(y, chunksY);
+        List<CompletableFuture<WorldChunk>> waitFor = new ArrayList<>();
+
+        synchronized(this){
+            if(chunkX == centerX && chunkY == centerY && !waitForAll)
+                return;
+            centerX = chunkX;
+            centerY = chunkY;
+
+            //ring by ring, so the nearest chunks get loaded first
+            for(int ring = 0; ring <= Const.CHUNK_LOAD_RADIUS; ring++){
+                for(int cy = chunkY - ring; cy <= chunkY + ring; cy++){
+                    for(int cx = chunkX - ring; cx <= chunkX + ring; cx++){
+                        boolean onRing = Math.abs(cx - chunkX) == ring || Math.abs(cy - chunkY) == ring;
+                        if(!onRing || cx < 0 || cy < 0 || cx >= chunksX || cy >= chunksY)
+                            continue;
+
+                        int index = cy * chunksX + cx;
+                        //get marks the chunk as recently needed
+                        if(resident.get(index) != null)
+                            continue;
+
+                        CompletableFuture<WorldChunk> task = request(index);
+                        if(waitForAll || ring == 0)
+                            waitFor.add(task);
+                    }
+                }
+            }
+        }
+
+        //waiting happens outside the lock, the loading thread needs it to hand its chunks over
+        for(CompletableFuture<WorldChunk> task : waitFor){
+            try{
+                WorldChunk chunk = task.join();
+                synchronized(this){
+                    insert(chunk.getChunkY() * chunksX + chunk.getChunkX(), chunk);
+                }
+            }
+            catch(CompletionException e){
+                //already reported by finish
+            }
+        }
+    }
+
+    /**
+     * Starts loading a chunk, unless it is already being loaded
+     * (needs the lock)
+     * @param index the index of the chunk
+     * @return the loading chunk
+     */
+    private CompletableFuture<WorldChunk> request(int index){
+        CompletableFuture<WorldChunk> task = loading.get(index);
+        if(task != null)
+            return task;
+
+        task = submit(index);
+        loading.put(index, task);
+        task.whenComplete((chunk, error) -> finish(index, chunk, error));
+        return task;
+    }
+
+    /**
+     * Queues a chunk on the loading thread
+     * @param index the index of the chunk
+     * @return the loading chunk
+     */
+    private CompletableFuture<WorldChunk> submit(int index){
+        int chunkX = index % chunksX;
+        int chunkY = index / chunksX;
+        return CompletableFuture.supplyAsync(() -> {
+            try{
+                return loader.load(chunkX, chunkY);
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Rebuilds loaded chunks in the background (after the data they are built from changed)
+     * Until a chunk is rebuilt the old one stays visible, chunks which get evicted in the meantime are simply loaded again the next time
+     * @param filter decides which of the loaded chunks have to be rebuilt
+     */
+    public synchronized void reload(Predicate<WorldChunk> filter){
+        for(Map.Entry<Integer, WorldChunk> entry : resident.entrySet()){
+            if(!filter.test(entry.getValue()))
+                continue;
+
+            int index = entry.getKey();
+            submit(index).whenComplete((chunk, error) -> replace(index, chunk, error));
+        }
+    }
+
+    /**
+     * Swaps a rebuilt chunk in (loading thread)
+     * @param index the index of the chunk
+     * @param chunk the rebuilt chunk, null if it failed to load
+     * @param error why the chunk failed to load, null if it was loaded
+     */
+    private synchronized void replace(int index, WorldChunk chunk, Throwable error){
+        if(error != null){
+            System.out.println("[ERROR] Could not reload chunk " + index % chunksX + "," + index / chunksX);
+            error.printStackTrace();
+            return;
+        }
+
+        //evicted while it was rebuilt
+        WorldChunk old = chunks.get(index);
+        if(old == null)
+            return;
+
+        resident.replace(index, chunk);
+        residentBytes += chunk.getMemorySize() - old.getMemorySize();
+        chunks.set(index, chunk);
+        onChange.run();
+    }
+
+    /**
+     * Hands a loaded chunk over (loading thread)
+     * @param index the index of the chunk
+     * @param chunk the chunk, null if it failed to load
+     * @param error why the chunk failed to load, null if it was loaded
+     */
+    private synchronized void finish(int index, WorldChunk chunk, Throwable error){
+        loading.remove(index);
+
+        if(error != null){
+            System.out.println("[ERROR] Could not load chunk " + index % chunksX + "," + index / chunksX);
+            error.printStackTrace();
+            return;
+        }
+
+        insert(index, chunk);
+    }
+
+    /**
+     * Makes a loaded chunk visible and evicts chunks if the memory budget is exceeded
+     * (needs the lock)
+     * @param index the index of the chunk
+     * @param chunk the chunk
+     */
+    private void insert(int index, WorldChunk chunk){
+        if(resident.containsKey(index))
+            return;
+
+        resident.put(index, chunk);
+        residentBytes += chunk.getMemorySize();
+        chunks.set(index, chunk);
+
+        evict();
+        onChange.run();
+    }
+
+    /**
+     * Evicts the least recently needed chunks outside the load radius until the loaded chunks fit into the memory budget
+     * (needs the lock)
+     */
+    private void evict(){
+        Iterator<Map.Entry<Integer, WorldChunk>> iterator = resident.entrySet().iterator();
+        while(residentBytes > memoryBudget && iterator.hasNext()){
+            Map.Entry<Integer, WorldChunk> entry = iterator.next();
+            int chunkX = entry.getKey() % chunksX;
+            int chunkY = entry.getKey() / chunksX;
+            if(Math.abs(chunkX - centerX) <= Const.CHUNK_LOAD_RADIUS && Math.abs(chunkY - centerY) <= Const.CHUNK_LOAD_RADIUS)
+                continue;
+
+            chunks.set(entry.getKey(), null);
+            residentBytes -= entry.getValue().getMemorySize();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return all loaded chunks, least recently needed first
+     */
+    public synchronized List<WorldChunk> getResidentChunks(){
+        return new ArrayList<>(resident.values());
+    }
+
+    /**
+     * @return the amount of loaded chunks
+     */
+    public synchronized int getResidentCount(){
+        return resident.size();
+    }
+}
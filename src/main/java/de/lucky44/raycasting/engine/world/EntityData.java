@@ -0,0 +1,18 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+
+/**
+ * Simple immutable data holder describing an entity of a world, before any of its images are loaded
+ * @param name the name of the entity
+ * @param animated true if the entity is animated, false if it has a static sprite
+ * @param position the position of the entity
+ * @param size the size of the sprite
+ * @param yOffset the yOffset of the sprite
+ * @param sprite the sprite ("tilemap &lt;tilemap&gt; &lt;tile&gt;" or a file inside e/sprites/), null if there is none
+ * @param animations the names of the animations (inside e/sprites/anim/)
+ * @author Nick Balischewski
+ */
+public record EntityData(String name, boolean animated, vec2D position, vec2D size, int yOffset, String sprite, String[] animations) {
+
+}
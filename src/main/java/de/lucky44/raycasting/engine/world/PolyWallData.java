@@ -0,0 +1,35 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+
+/**
+ * Simple immutable data holder describing a PolyWall of a world
+ * @param points the points of the wall (at least 2)
+ * @param texture the texture id
+ * @param tile should the texture be tiled
+ * @param textureOffset the offset of the texture
+ * @author Nick Balischewski
+ */
+public record PolyWallData(vec2D[] points, int texture, boolean tile, double textureOffset) {
+
+    /**
+     * Checks if the wall may pass through a square of cells (compares the bounds of its points, with one cell to spare)
+     * @param x the x coordinate of the first cell of the square
+     * @param y the y coordinate of the first cell of the square
+     * @param size the width and height of the square
+     * @return true if the wall may pass through the square
+     */
+    public boolean touches(int x, int y, int size){
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for(vec2D point : points){
+            minX = Math.min(minX, point.x);
+            minY = Math.min(minY, point.y);
+            maxX = Math.max(maxX, point.x);
+            maxY = Math.max(maxY, point.y);
+        }
+
+        return Math.floor(maxX) + 1 >= x && Math.floor(minX) - 1 < x + size
+                && Math.floor(maxY) + 1 >= y && Math.floor(minY) - 1 < y + size;
+    }
+}
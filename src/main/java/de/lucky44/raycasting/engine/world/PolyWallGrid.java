@@ -0,0 +1,286 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.rendering.renderables.PolyWall;
+
+/**
+ * Spatial index which buckets every PolyWall segment into the map-cells it passes through
+ * Covers a rectangle of cells (a WorldChunk), indexed row-major from its origin, so a ray can look up the segments of the cell it is walking through
+ * The segments of cell i are cellSegments[cellStart[i]] to cellSegments[cellStart[i+1]-1]
+ * @author Nick Balischewski
+ */
+public class PolyWallGrid {
+
+    /**
+     * The start and end points of every segment (x1, y1, x2, y2 per segment)
+     */
+    private final double[] segmentPoints;
+    /**
+     * The PolyWall every segment belongs to
+     */
+    private final PolyWall[] segmentWalls;
+    /**
+     * The index of every segment inside its PolyWall (index of its first vertex)
+     */
+    private final int[] segmentIndices;
+
+    /**
+     * Where the segments of each cell start inside cellSegments (one more entry than there are cells)
+     */
+    private final int[] cellStart;
+    /**
+     * The segment ids of all cells, one after another
+     */
+    private final int[] cellSegments;
+
+    /**
+     * The first cell covered by the index
+     */
+    private final int originX, originY;
+    /**
+     * The amount of cells covered in x and y direction
+     */
+    private final int width, height;
+
+    /**
+     * The result of a ray-segment test, meant to be preallocated once per ray
+     */
+    public static class Hit {
+        /**
+         * The distance along the ray (in ray-direction lengths) of the closest hit so far
+         */
+        public double distance = Double.MAX_VALUE;
+        /**
+         * The hit segment id, -1 if nothing was hit
+         */
+        public int segment = -1;
+        /**
+         * The intersection-point of the closest hit so far
+         */
+        public final vec2D point = new vec2D(0,0);
+        /**
+         * The PolyWall of the hit segment (a ray can walk through the indices of several chunks, so the segment id alone is not enough)
+         */
+        public PolyWall wall;
+        /**
+         * The index of the hit segment inside its PolyWall
+         */
+        public int segmentIndex;
+
+        /**
+         * Resets the hit, so it can be reused for the next ray
+         */
+        public void reset(){
+            distance = Double.MAX_VALUE;
+            segment = -1;
+            wall = null;
+        }
+    }
+
+    /**
+     * Builds the index for the given PolyWalls
+     * @param originX the x coordinate of the first cell covered
+     * @param originY the y coordinate of the first cell covered
+     * @param width the amount of cells covered in x direction
+     * @param height the amount of cells covered in y direction
+     * @param polyWalls the PolyWalls (null entries are skipped, segments outside the covered cells are ignored)
+     */
+    public PolyWallGrid(int originX, int originY, int width, int height, PolyWall[] polyWalls){
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+
+        int segmentCount = 0;
+        for(PolyWall wall : polyWalls){
+            if(wall != null)
+                segmentCount += wall.getPoints().length - 1;
+        }
+
+        segmentPoints = new double[segmentCount * 4];
+        segmentWalls = new PolyWall[segmentCount];
+        segmentIndices = new int[segmentCount];
+
+        int id = 0;
+        for(PolyWall wall : polyWalls){
+            if(wall == null)
+                continue;
+
+            vec2D[] points = wall.getPoints();
+            for(int i = 1; i < points.length; i++){
+                segmentPoints[id * 4] = points[i-1].x;
+                segmentPoints[id * 4 + 1] = points[i-1].y;
+                segmentPoints[id * 4 + 2] = points[i].x;
+                segmentPoints[id * 4 + 3] = points[i].y;
+                segmentWalls[id] = wall;
+                segmentIndices[id] = i-1;
+                id++;
+            }
+        }
+
+        //without segments there is nothing to look up, so chunks without PolyWalls do not pay for a cell table
+        if(segmentCount == 0){
+            cellStart = new int[1];
+            cellSegments = new int[0];
+            return;
+        }
+
+        //first pass counts the segments of every cell, second pass fills them in
+        int cellCount = width * height;
+        cellStart = new int[cellCount + 1];
+        for(int s = 0; s < segmentCount; s++){
+            visitCells(s, null);
+        }
+
+        int total = 0;
+        for(int i = 0; i < cellCount; i++){
+            int count = cellStart[i];
+            cellStart[i] = total;
+            total += count;
+        }
+        cellStart[cellCount] = total;
+
+        cellSegments = new int[total];
+        int[] fill = new int[cellCount];
+        for(int s = 0; s < segmentCount; s++){
+            visitCells(s, fill);
+        }
+    }
+
+    /**
+     * Walks all cells a segment passes through (corners count for both neighbours) and either counts or registers it there
+     * @param segment the segment id
+     * @param fill null for counting, otherwise the amount of segments already registered per cell
+     */
+    private void visitCells(int segment, int[] fill){
+        double x1 = segmentPoints[segment * 4], y1 = segmentPoints[segment * 4 + 1];
+        double x2 = segmentPoints[segment * 4 + 2], y2 = segmentPoints[segment * 4 + 3];
+        double dx = x2 - x1, dy = y2 - y1;
+
+        int cellX = (int)Math.floor(x1), cellY = (int)Math.floor(y1);
+        int endX = (int)Math.floor(x2), endY = (int)Math.floor(y2);
+        int stepX = dx < 0 ? -1 : 1, stepY = dy < 0 ? -1 : 1;
+
+        double deltaX = dx == 0 ? Double.MAX_VALUE : Math.abs(1 / dx);
+        double deltaY = dy == 0 ? Double.MAX_VALUE : Math.abs(1 / dy);
+        double maxX = dx == 0 ? Double.MAX_VALUE : (dx > 0 ? cellX + 1 - x1 : x1 - cellX) * deltaX;
+        double maxY = dy == 0 ? Double.MAX_VALUE : (dy > 0 ? cellY + 1 - y1 : y1 - cellY) * deltaY;
+
+        int steps = Math.abs(endX - cellX) + Math.abs(endY - cellY);
+        addToCell(segment, cellX, cellY, fill);
+        for(int i = 0; i < steps; i++){
+            if(maxX < maxY){
+                cellX += stepX;
+                maxX += deltaX;
+            }
+            else if(maxY < maxX){
+                cellY += stepY;
+                maxY += deltaY;
+            }
+            else{
+                //passing exactly through a corner, so both neighbours get the segment as well
+                addToCell(segment, cellX + stepX, cellY, fill);
+                addToCell(segment, cellX, cellY + stepY, fill);
+                cellX += stepX;
+                cellY += stepY;
+                maxX += deltaX;
+                maxY += deltaY;
+                i++;
+            }
+            addToCell(segment, cellX, cellY, fill);
+        }
+    }
+
+    /**
+     * Counts or registers a segment in one cell (cells outside the covered rectangle are skipped)
+     * @param segment the segment id
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @param fill null for counting, otherwise the amount of segments already registered per cell
+     */
+    private void addToCell(int segment, int x, int y, int[] fill){
+        x -= originX;
+        y -= originY;
+        if(x < 0 || y < 0 || x >= width || y >= height)
+            return;
+
+        int cell = y * width + x;
+        if(fill == null){
+            cellStart[cell]++;
+            return;
+        }
+
+        cellSegments[cellStart[cell] + fill[cell]++] = segment;
+    }
+
+    /**
+     * Tests a ray against all segments registered in one cell and keeps the closest hit
+     * @param cell the index of the cell (row-major from the origin, for chunks WorldChunk.cellIndex)
+     * @param startX the StartPosition X of the Ray
+     * @param startY the StartPosition Y of the Ray
+     * @param dirX the direction X of the Ray
+     * @param dirY the direction Y of the Ray
+     * @param hit the closest hit so far, gets updated if a closer segment is found
+     * @return the amount of segments tested
+     */
+    public int intersect(int cell, double startX, double startY, double dirX, double dirY, Hit hit){
+        if(cellSegments.length == 0)
+            return 0;
+
+        int end = cellStart[cell + 1];
+        for(int i = cellStart[cell]; i < end; i++){
+            int s = cellSegments[i];
+            double x1 = segmentPoints[s * 4], y1 = segmentPoints[s * 4 + 1];
+            double ex = segmentPoints[s * 4 + 2] - x1, ey = segmentPoints[s * 4 + 3] - y1;
+
+            double den = dirX * ey - dirY * ex;
+            if(den == 0)
+                continue;
+
+            double wx = x1 - startX, wy = y1 - startY;
+            double t = (wx * ey - wy * ex) / den;
+            double u = (wx * dirY - wy * dirX) / den;
+
+            if(u > 0 && u < 1 && t > 0 && t <= hit.distance){
+                hit.distance = t;
+                hit.segment = s;
+                hit.point.x = x1 + u * ex;
+                hit.point.y = y1 + u * ey;
+                hit.wall = segmentWalls[s];
+                hit.segmentIndex = segmentIndices[s];
+            }
+        }
+        return end - cellStart[cell];
+    }
+
+    /**
+     * @param segment the segment id
+     * @return the PolyWall the segment belongs to
+     */
+    public PolyWall getWall(int segment){
+        return segmentWalls[segment];
+    }
+
+    /**
+     * @param segment the segment id
+     * @return the index of the segment inside its PolyWall
+     */
+    public int getSegmentIndex(int segment){
+        return segmentIndices[segment];
+    }
+
+    /**
+     * @return the total amount of indexed segments
+     */
+    public int getSegmentCount(){
+        return segmentWalls.length;
+    }
+
+    /**
+     * @return the rough amount of memory the index takes up in bytes
+     */
+    public long getMemorySize(){
+        return (long)segmentPoints.length * Double.BYTES + segmentWalls.length * 8L + (long)segmentIndices.length * Integer.BYTES
+                + (long)cellStart.length * Integer.BYTES + (long)cellSegments.length * Integer.BYTES;
+    }
+}
@@ -2,33 +2,53 @@ package de.lucky44.raycasting.engine.world;
 
 import de.lucky44.raycasting.engine.animation.Animation;
 import de.lucky44.raycasting.engine.animation.Animator;
+import de.lucky44.raycasting.engine.diagnostics.WorldLoadEvent;
 import de.lucky44.raycasting.engine.math.vec2D;
 import de.lucky44.raycasting.engine.entities.Entity;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
 import de.lucky44.raycasting.engine.rendering.TextureManager;
+import de.lucky44.raycasting.engine.util.TileMap;
 import de.lucky44.raycasting.rendering.renderables.AnimatedSprite;
-import de.lucky44.raycasting.engine.time.Time;
 import de.lucky44.raycasting.rendering.renderables.PolyWall;
 import de.lucky44.raycasting.rendering.renderables.Sprite;
 import lombok.Getter;
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * A World class responsible for bringing all parts of the Application together
+ * The map is split into chunks (WorldChunk) which get streamed in and out around the player, so only the part near the player is in memory
  * @author Nick Balischewski
  */
 public class World {
 
     //mapData for game
     /**
-     * The map in a threeDimension array ([i][x][y] -> i = 0: walls; i = 1: floor-cells; i = 2: ceiling-cells)
+     * The value of the solid cells filling the part of the edge chunks which lies outside the map (rays stop there without hitting anything)
      */
-    private int[][][] mapData;
+    public static final short SOLID_BORDER = -1;
+
+    /**
+     * The data the chunks are read from (the whole map for text worlds, only the header for compiled ones)
+     */
+    private WorldData source;
+    /**
+     * Pages the chunks in and out
+     */
+    private ChunkStreamer chunks;
+    /**
+     * The width and height of the map in cells
+     */
+    private int width, height;
 
     /**
      * The name of this world
@@ -37,16 +57,22 @@ public class World {
     private String name;
 
     /**
-     * The poly-walls in this world/map
+     * The poly-walls of all loaded chunks (a wall crossing a chunk border is in here once per loaded chunk it passes through)
+     */
+    @Getter
+    private volatile PolyWall[] polyWalls = new PolyWall[0];
+
+    /**
+     * The Entities of all loaded chunks
      */
     @Getter
-    private PolyWall[] polyWalls;
+    private volatile Entity[] entities = new Entity[0];
 
     /**
-     * The Entities in this Map
+     * Counts up whenever the loaded chunks changed (loaded, evicted or rebuilt), so caches of the map know when to redraw
      */
     @Getter
-    private Entity[] entities;
+    private volatile int revision = 0;
 
     /**
      * The startposition of the player
@@ -62,7 +88,11 @@ public class World {
     /**
      * All animations that are used in this world
      */
-    private final HashMap<String, Animation> animationBuffer = new HashMap<>();
+    private final Map<String, CompletableFuture<Animation>> animationBuffer = new ConcurrentHashMap<>();
+    /**
+     * All sprites that are used in this world (by reference)
+     */
+    private final Map<String, SpriteFrame> spriteBuffer = new ConcurrentHashMap<>();
 
     /**
      * The TextureManager to cache all textures used in this world
@@ -75,9 +105,19 @@ public class World {
      */
     private final String gameDirectory;
 
+    /**
+     * Watches the directory for changed files, null while hot reloading is off
+     */
+    private WorldWatcher watcher;
+    /**
+     * Changes which were reloaded in the background and have to be applied between two frames (see applyPendingChanges)
+     */
+    private final ConcurrentLinkedQueue<Runnable> pendingChanges = new ConcurrentLinkedQueue<>();
+
     /**
      * Initializes the mapdata and everything else
      * @param directory the directory of this map
+     * @throws UncheckedIOException gets thrown when the map couldn't be loaded (there is no half loaded world)
      */
     public World(String directory){
         gameDirectory = directory;
@@ -85,7 +125,7 @@ public class World {
             loadMap(directory);
         }
         catch (IOException e){
-            e.printStackTrace();
+            throw new UncheckedIOException("Could not load world " + directory, e);
         }
     }
 
@@ -94,371 +134,518 @@ public class World {
      * @return width of the map
      */
     public int Width(){
-        return mapData[0].length;
+        return width;
     }
     /**
      * The height of the Map
      * @return height of the map
      */
     public int Height(){
-        return mapData[0][0].length;
+        return height;
+    }
+
+    /**
+     * The map-cell resolution (average of width and height), the depth range everything in this world is measured against
+     * @return the cell resolution of the map
+     */
+    public int getCellResolution(){
+        return (width + height) / 2;
+    }
+
+    /**
+     * Checks if the cell lies inside the map
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return true if (x,y) is a cell of the map
+     */
+    public boolean isInside(int x, int y){
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /**
+     * Returns a chunk without waiting for it (meant for the renderer)
+     * @param chunkX the x coordinate of the chunk (cell coordinate &gt;&gt; WorldChunk.SHIFT)
+     * @param chunkY the y coordinate of the chunk (cell coordinate &gt;&gt; WorldChunk.SHIFT)
+     * @return the chunk, null if it lies outside the map or is not loaded (yet)
+     */
+    public WorldChunk getChunk(int chunkX, int chunkY){
+        return chunks.getChunk(chunkX, chunkY);
+    }
+
+    /**
+     * Returns the chunk a cell lies in
+     * @param x the x coordinate of the cell
+     * @param y the y coordinate of the cell
+     * @return the chunk, null if the cell lies outside the map or its chunk is not loaded (yet)
+     */
+    private WorldChunk getChunkOfCell(int x, int y){
+        if(!isInside(x, y))
+            return null;
+
+        return chunks.getChunk(x >> WorldChunk.SHIFT, y >> WorldChunk.SHIFT);
     }
 
     /**
      * returns the wall at x and y
      * @param x the x coordinate of the cell
      * @param y the y coordinate of the cell
-     * @return wall-cell at (x,y)
+     * @return wall-cell at (x,y) (0 if the cell lies outside the map or is not loaded)
      */
     public int getCellWall(int x, int y){
-        try{
-            return mapData[0][x][y];
-        }
-        catch (IndexOutOfBoundsException e){
-            e.printStackTrace();
-
-            System.out.println("deltaTime: " + Time.deltaTime);
-        }
-        return 0;
+        WorldChunk chunk = getChunkOfCell(x, y);
+        return chunk == null ? 0 : chunk.getWallData()[WorldChunk.cellIndex(x, y)];
     }
 
     /**
      * returns the floor-cell at x and y
      * @param x the x coordinate of the cell
      * @param y the y coordinate of the cell
-     * @return floor-cell at (x,y)
+     * @return floor-cell at (x,y) (0 if the cell lies outside the map or is not loaded)
      */
     public int getCellFloor(int x, int y){
-        try{
-            return mapData[1][x][y];
-        }
-        catch (IndexOutOfBoundsException e){
-            e.printStackTrace();
-
-            System.out.println("deltaTime: " + Time.deltaTime);
-        }
-        return 0;
+        WorldChunk chunk = getChunkOfCell(x, y);
+        return chunk == null ? 0 : chunk.getFloorData()[WorldChunk.cellIndex(x, y)];
     }
 
     /**
      * returns the ceiling-cell at x and y
      * @param x the x coordinate of the cell
      * @param y the y coordinate of the cell
-     * @return ceiling-cell at (x,y)
+     * @return ceiling-cell at (x,y) (0 if the cell lies outside the map or is not loaded)
      */
     public int getCellRoof(int x, int y){
-        try{
-            return mapData[2][x][y];
-        }
-        catch (IndexOutOfBoundsException e){
-            e.printStackTrace();
+        WorldChunk chunk = getChunkOfCell(x, y);
+        return chunk == null ? 0 : chunk.getRoofData()[WorldChunk.cellIndex(x, y)];
+    }
 
-            System.out.println("deltaTime: " + Time.deltaTime);
-        }
-        return 0;
+    /**
+     * Starts streaming the chunks around a position in and waits for the chunk the position lies in
+     * Cheap as long as the position stays in the same chunk, so it can be called every tick
+     * @param position the position (of the player)
+     */
+    public void streamAround(vec2D position){
+        chunks.streamAround(position.x, position.y);
+    }
+
+    /**
+     * Loads all chunks around a position and waits for them (for rendering without a player, e.g. headless)
+     * @param position the position
+     */
+    public void loadAround(vec2D position){
+        chunks.loadAround(position.x, position.y);
+    }
+
+    /**
+     * @return the amount of chunks of the map
+     */
+    public int getChunkCount(){
+        return chunks.getChunksX() * chunks.getChunksY();
+    }
+
+    /**
+     * @return the amount of loaded chunks
+     */
+    public int getLoadedChunkCount(){
+        return chunks.getResidentCount();
+    }
+
+    /**
+     * @return how much memory the loaded chunks take up (in bytes)
+     */
+    public long getLoadedChunkMemory(){
+        return chunks.getResidentBytes();
     }
 
     /**
      * Loads ALL the MapData (including entities and polywalls) from the given directory
+     * Uses the compiled world (world.rcw) if it is up-to-date, otherwise the text files
      * @param directory the directory containing the data
      * @throws IOException gets thrown when the map couldn't be loaded
      */
     private void loadMap(String directory) throws IOException{
-        loadMapData(directory);
-        loadEntities(directory);
-        loadPolyWalls(directory);
-    }
+        WorldLoadEvent event = new WorldLoadEvent();
+        event.begin();
 
-    /**
-     * Loads the mapData from the given directory
-     * @param directoryPath the directory
-     * @throws IOException gets thrown when the no data.m file was found
-     */
-    private void loadMapData(String directoryPath) throws IOException {
-        File saveFile = new File(directoryPath + "/data.m");
-        BufferedReader reader = new BufferedReader(new FileReader(saveFile));
-        String line = reader.readLine();
-        boolean readingMapData = false;
-        int lineCounter = 0;
-        int mapToRead = 0;
-
-        List<BufferedImage> textures = new ArrayList<>();
-
-        while(line != null){
-
-            String[] parts = line.split(" ");
-
-            if(!readingMapData){
-                switch(parts[0].toLowerCase()){
-                    case("name:") -> {
-                        StringBuilder nameBuilder = new StringBuilder();
-                        for(int i = 1; i < parts.length; i++){
-                            if(i != 1)
-                                nameBuilder.append(" ");
-                            nameBuilder.append(parts[i]);
-                        }
-                        name = nameBuilder.toString();
-                    }
-                    case("size:") -> mapData = new int[3][Integer.parseInt(parts[1])][Integer.parseInt(parts[2])];
-                    case("playerpos:") -> playerStartPos = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
-                    case("playerrot:") -> startRotation = Double.parseDouble(parts[1]);
-                    case("entities:") -> entities = new Entity[Integer.parseInt(parts[1])];
-                    case("polywalls:") -> polyWalls = new PolyWall[Integer.parseInt(parts[1])];
-                    case("texture:") -> {
-                        if(parts[1].equalsIgnoreCase("tilemap")){
-                            BufferedImage tile = textureManager.getTile(parts[2], parts[3]);
-
-                            if(tile == null){
-                                System.out.println("[ERROR] Could not load tile " + parts[3] + " from tilemap " + parts[2]);
-                                break;
-                            }
-
-                            textures.add(tile);
-                            break;
-                        }
-
-                        File imageFile = new File(directoryPath + "/t/" + parts[1]);
-                        if(!imageFile.exists()){System.out.println("[ERROR] Could not load " + imageFile.getName()); break;}
-
-                        textures.add(ImageIO.read(imageFile));
-                        System.out.println("Loaded texture: " + imageFile.getName());
-                    }
-                    case("tilemap:") -> textureManager.loadTileMap(parts[1], directoryPath + "/t/tilemaps/" + parts[1].split("\\.")[0] + "/");
-                    case("wallmap:") -> {
-                        System.out.println("Reading wall-data");
-                        readingMapData = true;
-                        mapToRead = 0;
-                    }
-                    case("floormap:") -> {
-                        System.out.println("Reading floor-data");
-                        readingMapData = true;
-                        mapToRead = 1;
-                    }
-                    case("roofmap:") -> {
-                        System.out.println("Reading roof-data");
-                        readingMapData = true;
-                        mapToRead = 2;
-                    }
-                }
-            }
-            else{
-                for(int x = 0; x < parts.length; x++){
-                    mapData[mapToRead][x][lineCounter] = Integer.parseInt(parts[x]);
-                }
-                lineCounter++;
+        try(AssetLoader assets = new AssetLoader(animationBuffer)){
+            WorldData data = null;
 
-                if(lineCounter > mapData[0][0].length-1){
-                    System.out.println(lineCounter);
-                    readingMapData = false;
-                    lineCounter = 0;
+            if(WorldBinaryFormat.isUpToDate(directory)){
+                try{
+                    data = WorldBinaryFormat.read(new File(directory, WorldBinaryFormat.FILE_NAME));
+                    System.out.println("Loaded compiled world " + WorldBinaryFormat.FILE_NAME);
+                }
+                catch(IOException e){
+                    System.out.println("[ERROR] Could not load compiled world, falling back to " + WorldTextFormat.DATA_FILE);
+                    e.printStackTrace();
                 }
             }
 
-            line = reader.readLine();
+            if(data == null)
+                data = WorldTextFormat.read(directory);
+            assets.phase("read");
+
+            build(data, directory, assets);
+            System.out.println("Loaded world " + name + " in " + assets.report());
+
+            if(event.shouldCommit()){
+                event.world = name;
+                event.directory = directory;
+                event.compiled = data.isCompiled();
+                event.width = width;
+                event.height = height;
+                event.chunks = getChunkCount();
+                event.loadedChunks = getLoadedChunkCount();
+                event.tileMaps = data.tileMaps.size();
+                event.textures = textureManager.getTextureCount();
+                event.textureBytes = textureManager.getMemorySize();
+                event.commit();
+            }
         }
-
-        textureManager.loadTextures(textures.toArray(BufferedImage[]::new));
-        System.out.println("Done reading map data...");
     }
 
     /**
-     * Loads the entities of the given world
-     * @param directory the directory
-     * @throws IOException gets thrown when the entities couldn't be loaded
+     * Builds the World from its data, loads all the images it references and the chunks around the player
+     * All images get decoded concurrently, the phases only wait for what they need
+     * @param data the data of the world
+     * @param directory the directory containing the images
+     * @param assets the loader the images are decoded with
+     * @throws IOException gets thrown when an image couldn't be loaded
      */
-    private void loadEntities(String directory) throws IOException{
-        String entityDirectory = directory + "/e/";
-
-        for(int i = 0; i < entities.length; i++){
-            File entityFile = new File(entityDirectory + "e" + i + ".e");
-            BufferedReader reader = new BufferedReader(new FileReader(entityFile));
-            String line = reader.readLine();
+    private void build(WorldData data, String directory, AssetLoader assets) throws IOException{
+        source = data;
+        name = data.name;
+        width = data.width;
+        height = data.height;
+        playerStartPos = data.playerStartPos;
+        startRotation = data.startRotation;
+
+        //start every decode first, tiles and animations wait for their tilemaps on their own
+        for(String tileMap : data.tileMaps){
+            assets.loadTileMap(tileMap, directory + "/t/tilemaps/" + tileMap.split("\\.")[0] + "/");
+        }
 
-            String eName = "";
-            vec2D ePos = vec2D.ZERO.copy();
+        List<CompletableFuture<BufferedImage>> textures = new ArrayList<>();
+        for(String texture : data.textures){
+            textures.add(assets.image(texture, directory + "/t/"));
+        }
 
-            int eType = 0;
-            Sprite renderer = null;
-            ArrayList<Animation> animations = new ArrayList<>();
+        //every sprite and animation is loaded up front, so chunks can be built while streaming without waiting for images
+        Map<String, CompletableFuture<SpriteFrame>> sprites = new HashMap<>();
+        for(String sprite : data.sprites){
+            sprites.put(sprite, assets.spriteFrame(sprite, directory + "/e/sprites/"));
+        }
+        for(String animation : data.animations){
+            assets.animation(animation, directory + "/e/");
+        }
 
-            BufferedImage sprite = null;
-            vec2D size = vec2D.ZERO.copy();
-            int yOffset = 0;
+        chunks = new ChunkStreamer(data.chunksX(), data.chunksY(), this::loadChunk, this::collectLoadedChunks);
+        assets.phase("setup");
 
-            while(line != null){
-                String[] parts = line.split(" ");
+        for(Map.Entry<String, CompletableFuture<TileMap>> tileMap : assets.getTileMaps().entrySet()){
+            TileMap loaded = AssetLoader.join(tileMap.getValue());
+            if(loaded != null)
+                textureManager.addTileMap(tileMap.getKey(), loaded);
+        }
+        assets.phase("tilemaps");
 
-                switch(parts[0].toLowerCase()){
-                    case("type:") -> eType = parts[1].equalsIgnoreCase("static") ? 0 : 1;
-                    case("position:") -> ePos = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
-                    case("name:") -> {
-                        StringBuilder nameBuilder = new StringBuilder();
-                        for(int j = 1; j < parts.length; j++){
-                            if(j != 1)
-                                nameBuilder.append(" ");
-                            nameBuilder.append(parts[j]);
-                        }
-                        eName = nameBuilder.toString();
-                    }
+        List<BufferedImage> textureImages = new ArrayList<>();
+        for(CompletableFuture<BufferedImage> texture : textures){
+            BufferedImage image = AssetLoader.join(texture);
+            if(image != null)
+                textureImages.add(image);
+        }
+        textureManager.loadTextures(textureImages.toArray(BufferedImage[]::new));
+        assets.phase("textures");
 
-                    case("animation:") -> animations.add(loadAnimation(parts[1], entityDirectory));
-                    case("sprite:") -> {
+        for(Map.Entry<String, CompletableFuture<SpriteFrame>> sprite : sprites.entrySet()){
+            SpriteFrame frame = AssetLoader.join(sprite.getValue());
+            if(frame != null)
+                spriteBuffer.put(sprite.getKey(), frame);
+        }
+        for(CompletableFuture<Animation> animation : animationBuffer.values()){
+            AssetLoader.join(animation);
+        }
+        assets.phase("sprites");
 
-                        if(parts[1].equalsIgnoreCase("tilemap")){
-                            BufferedImage tile = textureManager.getTile(parts[2], parts[3]);
+        chunks.loadAround(playerStartPos != null ? playerStartPos.x : 0, playerStartPos != null ? playerStartPos.y : 0);
+        assets.phase("chunks");
+    }
 
-                            if(tile == null){
-                                System.out.println("[ERROR] Could not load tile " + parts[3] + " from tilemap " + parts[2]);
-                                break;
-                            }
+    //region hot reload
 
-                            sprite = tile;
-                            break;
-                        }
+    /**
+     * Starts watching the directory of the world, changed files get reloaded in the background
+     * Only the changed assets are read again: textures get swapped in between two frames, chunks using changed PolyWalls, entities or sprites get rebuilt
+     * @param onFullReload gets called (on the watching thread) if the change can't be applied to this world, e.g. when data.m changed
+     */
+    public void watch(Runnable onFullReload){
+        stopWatching();
 
-                        File imageFile = new File(entityDirectory + "sprites/" + parts[1]);
-                        if(!imageFile.exists()){System.out.println("[ERROR] Could not load " + imageFile.getName()); continue;}
+        try{
+            watcher = new WorldWatcher(gameDirectory, changes -> hotReload(changes, onFullReload));
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not watch world " + gameDirectory + " for changes");
+            e.printStackTrace();
+        }
+    }
 
-                        sprite = ImageIO.read(imageFile);
-                    }
-                    case("size:") -> size = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
-                    case("yoffset:") -> yOffset = Integer.parseInt(parts[1]);
-                }
-                line = reader.readLine();
-            }
+    /**
+     * Stops watching the directory of the world
+     */
+    public void stopWatching(){
+        if(watcher == null)
+            return;
 
-            renderer = new Sprite(sprite, size,yOffset);
-            if(eType == 1){
-                Animator animator = new Animator(animations.toArray(Animation[]::new));
-                renderer = new AnimatedSprite(animator, size, yOffset);
-            }
+        watcher.close();
+        watcher = null;
+    }
 
-            entities[i] = new Entity(eName, ePos, renderer);
+    /**
+     * Applies the changes which were reloaded since the last frame
+     * (Render thread, before anything gets drawn)
+     */
+    public void applyPendingChanges(){
+        Runnable change;
+        while((change = pendingChanges.poll()) != null){
+            change.run();
         }
-
-        System.out.println("Done reading entity data...");
     }
 
     /**
-     * Loads the polywalls of the given World
-     * @param directory the directory
-     * @throws IOException gets thrown when the polywalls couldn't be loaded
+     * Reloads the changed files
+     * (World-Watcher thread)
+     * @param changes what changed
+     * @param onFullReload gets called if the changes can't be applied to this world
      */
-    private void loadPolyWalls(String directory) throws IOException{
-        String entityDirectory = directory + "/pw/";
+    private void hotReload(WorldWatcher.Changes changes, Runnable onFullReload){
+        //the compiled world can't be patched, its chunks are read from the file
+        if(changes.everything || source.isCompiled() && (!changes.polyWalls.isEmpty() || !changes.entities.isEmpty())){
+            onFullReload.run();
+            return;
+        }
 
-        for(int i = 0; i < polyWalls.length; i++){
-            File entityFile = new File(entityDirectory + "pw" + i + ".pw");
-            BufferedReader reader = new BufferedReader(new FileReader(entityFile));
-            String line = reader.readLine();
+        Map<String, CompletableFuture<Animation>> reloadedAnimations = new HashMap<>();
+        try(AssetLoader assets = new AssetLoader(reloadedAnimations)){
+            //the data of the world changes first, so sprites and animations new entities use get loaded below
+            List<PolyWallData> changedPolyWalls = new ArrayList<>();
+            for(int file : changes.polyWalls){
+                if(file < source.polyWallFiles)
+                    reloadPolyWall(file, changedPolyWalls);
+            }
+            List<vec2D> changedEntities = new ArrayList<>();
+            for(int file : changes.entities){
+                if(file < source.entityFiles)
+                    reloadEntity(file, changedEntities);
+            }
 
-            List<vec2D> points = new ArrayList<>();
-            int texture = 0;
-            boolean tile = true;
-            double texOffset = 0;
+            for(String tileMap : source.tileMaps){
+                String tileMapName = tileMap.split("\\.")[0];
+                TileMap loaded = textureManager.getTileMap(tileMapName);
+                if(changes.tileMaps.contains(tileMapName) || loaded == null)
+                    assets.loadTileMap(tileMap, gameDirectory + "/t/tilemaps/" + tileMapName + "/");
+                else
+                    assets.addTileMap(tileMapName, loaded);
+            }
 
-            while(line != null){
-                String[] parts = line.split(" ");
+            Map<Integer, CompletableFuture<BufferedImage>> textures = new HashMap<>();
+            for(int texture = 0; texture < source.textures.size() && texture < textureManager.getTextureCount(); texture++){
+                String reference = source.textures.get(texture);
+                if(isChanged(reference, changes.textureFiles, changes))
+                    textures.put(texture, assets.image(reference, gameDirectory + "/t/"));
+            }
 
-                switch(parts[0].toLowerCase()){
-                    case("point:") -> points.add(new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
-                    case("texture:") -> texture = Integer.parseInt(parts[1]);
-                    case("texture_tile:") -> tile = Boolean.parseBoolean(parts[1]);
-                    case("texture_offset:") -> texOffset = Double.parseDouble(parts[1]);
-                }
-                line = reader.readLine();
+            Map<String, CompletableFuture<SpriteFrame>> sprites = new HashMap<>();
+            for(String sprite : source.sprites){
+                if(isChanged(sprite, changes.spriteFiles, changes) || !spriteBuffer.containsKey(sprite))
+                    sprites.put(sprite, assets.spriteFrame(sprite, gameDirectory + "/e/sprites/"));
             }
 
-            if(points.size() < 2){
-                System.out.println("Could not load polyWall " + "pw" + i + ".pw, since it has less than 2 points");
-                continue;
+            //frames of animations may be tiles, so every animation gets reloaded with a tilemap
+            for(String animation : source.animations){
+                if(changes.animations.contains(animation) || !changes.tileMaps.isEmpty() || !animationBuffer.containsKey(animation))
+                    assets.animation(animation, gameDirectory + "/e/");
             }
+            assets.phase("read");
 
-            polyWalls[i] = new PolyWall(points.toArray(vec2D[]::new), texture, tile, texOffset);
-        }
+            for(Map.Entry<String, CompletableFuture<TileMap>> tileMap : assets.getTileMaps().entrySet()){
+                TileMap loaded = AssetLoader.join(tileMap.getValue());
+                if(loaded != null)
+                    textureManager.addTileMap(tileMap.getKey(), loaded);
+            }
 
-        System.out.println("Done reading PolyWall data...");
+            //decoded and baked here, the render thread only swaps the arrays
+            for(Map.Entry<Integer, CompletableFuture<BufferedImage>> texture : textures.entrySet()){
+                BufferedImage image = AssetLoader.join(texture.getValue());
+                if(image == null)
+                    continue;
+
+                int id = texture.getKey();
+                int[][] shades = TextureManager.bakeShades(TextureManager.toColumns(image));
+                pendingChanges.add(() -> textureManager.setTexture(id, shades, image.getWidth(), image.getHeight()));
+            }
+            assets.phase("textures");
+
+            for(Map.Entry<String, CompletableFuture<SpriteFrame>> sprite : sprites.entrySet()){
+                SpriteFrame frame = AssetLoader.join(sprite.getValue());
+                if(frame != null)
+                    spriteBuffer.put(sprite.getKey(), frame);
+            }
+            for(CompletableFuture<Animation> animation : reloadedAnimations.values()){
+                AssetLoader.join(animation);
+            }
+            animationBuffer.putAll(reloadedAnimations);
+            assets.phase("sprites");
+
+            //every entity of a chunk gets built again, so only chunks with entities are affected by changed images
+            boolean imagesChanged = !sprites.isEmpty() || !reloadedAnimations.isEmpty();
+            chunks.reload(chunk -> imagesChanged && chunk.getEntities().length > 0
+                    || touches(chunk, changedPolyWalls, changedEntities));
+            assets.phase("chunks");
+
+            System.out.println("Hot reloaded " + changes.size() + " changed asset(s) of world " + name + " in " + assets.report());
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not hot reload world " + name);
+            e.printStackTrace();
+        }
     }
 
     /**
-     * Loads the animation with the given name
-     * @param animationName the animation-name
-     * @param directory the world directory
-     * @return the loaded Animation
-     * @throws IOException gets thrown when the animation couldn't be loaded
+     * Reads one PolyWall file again (a deleted file removes the PolyWall)
+     * @param file the number of the file
+     * @param changed collects the old and the new PolyWall, the chunks they pass through have to be rebuilt
+     * @throws IOException gets thrown when the file couldn't be read
      */
-    private Animation loadAnimation(String animationName, String directory) throws IOException {
-        if(animationBuffer.containsKey(animationName))
-            return animationBuffer.get(animationName);
-
-        String animDirectory = directory + "sprites/anim/" + animationName + "/";
-
-        List<BufferedImage> frames = new ArrayList<>();
-        String name = "TMP";
-        double frameTime = 0.25d;
+    private void reloadPolyWall(int file, List<PolyWallData> changed) throws IOException{
+        PolyWallData wall = null;
+        if(new File(gameDirectory, "pw/pw" + file + ".pw").exists())
+            wall = WorldTextFormat.readPolyWall(gameDirectory, file);
+
+        PolyWallData old = source.setPolyWall(file, wall);
+        if(old != null)
+            changed.add(old);
+        if(wall != null)
+            changed.add(wall);
+    }
 
-        File animationFile = new File(animDirectory + animationName + ".a");
-        BufferedReader reader = new BufferedReader(new FileReader(animationFile));
-        String line = reader.readLine();
+    /**
+     * Reads one entity file again (a deleted file removes the entity)
+     * @param file the number of the file
+     * @param changed collects the old and the new position of the entity, the chunks they lie in have to be rebuilt
+     * @throws IOException gets thrown when the file couldn't be read
+     */
+    private void reloadEntity(int file, List<vec2D> changed) throws IOException{
+        EntityData entity = null;
+        if(new File(gameDirectory, "e/e" + file + ".e").exists())
+            entity = WorldTextFormat.readEntity(gameDirectory, file);
+
+        EntityData old = source.setEntity(file, entity);
+        if(old != null)
+            changed.add(old.position());
+        if(entity != null)
+            changed.add(entity.position());
+    }
 
-        //Types => 0 -> individual | 1 -> singleAnimSpritesheet | 2 -> multiple anim spritesheet
-        int frameType = 0;
-        int numOfFrames = 0;
+    /**
+     * Checks if an image reference changed
+     * @param reference the reference of the image ("tilemap &lt;tilemap&gt; &lt;tile&gt;" or the name of a file)
+     * @param changedFiles the changed files of the directory the reference is looked up in
+     * @param changes everything that changed
+     * @return true if the image has to be loaded again
+     */
+    private static boolean isChanged(String reference, Set<String> changedFiles, WorldWatcher.Changes changes){
+        String[] parts = reference.split(" ");
+        if(parts[0].equalsIgnoreCase("tilemap") && parts.length >= 3)
+            return changes.tileMaps.contains(parts[1]);
 
-        String spriteSheetName = "";
-        String fileType = "";
+        return changedFiles.contains(reference);
+    }
 
-        while(line != null){
-            String[] parts = line.split(" ");
+    /**
+     * Checks if a chunk is affected by changed PolyWalls or entities
+     * @param chunk the chunk
+     * @param polyWalls the changed PolyWalls
+     * @param entities the positions of the changed entities
+     * @return true if the chunk has to be rebuilt
+     */
+    private boolean touches(WorldChunk chunk, List<PolyWallData> polyWalls, List<vec2D> entities){
+        int x0 = chunk.getChunkX() << WorldChunk.SHIFT;
+        int y0 = chunk.getChunkY() << WorldChunk.SHIFT;
+        for(PolyWallData wall : polyWalls){
+            if(wall.touches(x0, y0, WorldChunk.SIZE))
+                return true;
+        }
 
-            switch(parts[0].toLowerCase()){
-                case("name:") -> name = parts[1];
-                case("type:") -> frameType = parts[1].equalsIgnoreCase("frames") ? 0 : parts[1].equalsIgnoreCase("spritesheet") ? 1 : 2;
-                case("numframes:") -> numOfFrames = Integer.parseInt(parts[1]);
-                case("frametime:") -> frameTime = Double.parseDouble(parts[1]);
-                case("spritesheet:") -> spriteSheetName = parts[1];
-                case("filetype:") -> fileType = parts[1];
-                case("frame:") -> {
+        for(vec2D position : entities){
+            if(WorldChunk.chunkOf(position.x, chunks.getChunksX()) == chunk.getChunkX() && WorldChunk.chunkOf(position.y, chunks.getChunksY()) == chunk.getChunkY())
+                return true;
+        }
+        return false;
+    }
+    //endregion
 
-                    if(parts[1].equalsIgnoreCase("tilemap")){
-                        BufferedImage frame = textureManager.getTile(parts[2], parts[3]);
+    /**
+     * Reads a chunk and builds its PolyWalls and entities
+     * (Chunk-Loader thread, while streaming)
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @return the chunk
+     * @throws IOException gets thrown when the chunk couldn't be read
+     */
+    private WorldChunk loadChunk(int chunkX, int chunkY) throws IOException{
+        ChunkData data = source.readChunk(chunkX, chunkY);
 
-                        if(frame == null){
-                            System.out.println("[ERROR] Could not load tile " + parts[3] + " from tilemap " + parts[2]);
-                            break;
-                        }
+        PolyWall[] chunkPolyWalls = new PolyWall[data.polyWalls().size()];
+        for(int i = 0; i < chunkPolyWalls.length; i++){
+            PolyWallData wall = data.polyWalls().get(i);
+            chunkPolyWalls[i] = new PolyWall(wall.points(), wall.texture(), wall.tile(), wall.textureOffset());
+        }
 
-                        frames.add(frame);
-                        break;
-                    }
+        Entity[] chunkEntities = new Entity[data.entities().size()];
+        for(int i = 0; i < chunkEntities.length; i++){
+            EntityData entity = data.entities().get(i);
+            chunkEntities[i] = new Entity(entity.name(), entity.position(), createSprite(entity));
+        }
 
-                    File imageFile = new File(animDirectory + parts[1]);
-                    if(!imageFile.exists()){System.out.println("[ERROR] Could not load " + imageFile.getName()); break;}
+        return new WorldChunk(chunkX, chunkY, data.wallData(), data.floorData(), data.roofData(), chunkPolyWalls, chunkEntities);
+    }
 
-                    frames.add(ImageIO.read(imageFile));
-                }
+    /**
+     * Creates the sprite (or animated sprite) of an entity from the images which were loaded up front
+     * @param data the data of the entity
+     * @return the sprite of the entity
+     */
+    private Sprite createSprite(EntityData data){
+        if(data.animated()){
+            List<Animation> animations = new ArrayList<>();
+            for(String animation : data.animations()){
+                CompletableFuture<Animation> loaded = animationBuffer.get(animation);
+                if(loaded != null && !loaded.isCompletedExceptionally())
+                    animations.add(loaded.join());
             }
-            line = reader.readLine();
+
+            return new AnimatedSprite(new Animator(animations.toArray(Animation[]::new)), data.size(), data.yOffset());
         }
 
-        switch (frameType){
-            case(1) -> {
-                File imageFile = new File(animDirectory + spriteSheetName + "." + fileType);
-                if(!imageFile.exists()){System.out.println("[ERROR] Could not load " + imageFile.getName()); break;}
+        return new Sprite(data.sprite() == null ? null : spriteBuffer.get(data.sprite()), data.size(), data.yOffset());
+    }
 
-                BufferedImage originalImage = ImageIO.read(imageFile);
-                int frameWidth = originalImage.getWidth() / numOfFrames;
-                int frameHeight = originalImage.getHeight();
+    /**
+     * Collects the entities and PolyWalls of all loaded chunks, whenever chunks were loaded or evicted
+     * (called by the ChunkStreamer while it holds its lock)
+     */
+    private void collectLoadedChunks(){
+        List<Entity> loadedEntities = new ArrayList<>();
+        List<PolyWall> loadedPolyWalls = new ArrayList<>();
 
-                for(int i = 0; i < numOfFrames; i++){
-                    frames.add(originalImage.getSubimage(frameWidth * i, 0, frameWidth, frameHeight));
-                }
-            }
+        for(WorldChunk chunk : chunks.getResidentChunks()){
+            loadedEntities.addAll(List.of(chunk.getEntities()));
+            loadedPolyWalls.addAll(List.of(chunk.getPolyWalls()));
         }
 
-        Animation anim = new Animation(name, frames.toArray(BufferedImage[]::new), frameTime);
-        animationBuffer.put(animationName, anim);
-        System.out.println("Loaded Animation " + animationName + " and added it to the buffer");
-        return anim;
+        entities = loadedEntities.toArray(Entity[]::new);
+        polyWalls = loadedPolyWalls.toArray(PolyWall[]::new);
+        revision++;
     }
 }
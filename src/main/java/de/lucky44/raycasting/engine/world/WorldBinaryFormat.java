@@ -0,0 +1,338 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The compiled (binary) format of a world, written by the WorldCompiler and loaded through memory-mapped FileChannels
+ * Holds everything data.m, e/ and pw/ describe, split into the chunks of the world, so every chunk can be read on its own when it is streamed in
+ * The layers are stored as raw shorts so reading a chunk is a bulk copy, images are still only referenced (by the same names as in the text format)
+ *
+ * Layout (big-endian, strings are an int length followed by UTF-8 bytes):
+ * magic, version, name, width, height, playerX, playerY, startRotation,
+ * tilemaps, textures, sprites, animations (count + strings each),
+ * chunk shift, chunk table (one long offset per chunk, row-major, plus the end of the last chunk),
+ * chunks: wall-, floor- and roof-layer (WorldChunk.CELLS shorts each),
+ * polywalls (count, then texture, tile, textureOffset, point count, points),
+ * entities (count, then name, animated, position, size, yOffset, sprite (empty for none), animation count, animations)
+ * @author Nick Balischewski
+ */
+public final class WorldBinaryFormat {
+
+    /**
+     * The name of the compiled file inside a world directory
+     */
+    public static final String FILE_NAME = "world.rcw";
+    /**
+     * The first four bytes of every compiled world ("RCW" + 0)
+     */
+    public static final int MAGIC = 0x52435700;
+    /**
+     * The version of the format, files of other versions are rejected
+     */
+    public static final int VERSION = 2;
+
+    private WorldBinaryFormat(){}
+
+    /**
+     * Checks if a world directory holds a compiled world which is at least as new as its text files
+     * @param directory the directory of the world
+     * @return true if the compiled world should be loaded
+     */
+    public static boolean isUpToDate(String directory){
+        File file = new File(directory, FILE_NAME);
+        return file.isFile() && file.lastModified() >= WorldTextFormat.lastModified(directory);
+    }
+
+    /**
+     * Writes a compiled world
+     * @param data the world
+     * @param file the file to write
+     * @throws IOException gets thrown when the file couldn't be written
+     */
+    public static void write(WorldData data, File file) throws IOException{
+        int chunkCount = data.chunksX() * data.chunksY();
+        long[] offsets = new long[chunkCount + 1];
+        long tableStart;
+
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))){
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, data.name);
+            out.writeInt(data.width);
+            out.writeInt(data.height);
+
+            vec2D playerPos = data.playerStartPos != null ? data.playerStartPos : vec2D.ZERO;
+            out.writeDouble(playerPos.x);
+            out.writeDouble(playerPos.y);
+            out.writeDouble(data.startRotation);
+
+            for(List<String> strings : List.of(data.tileMaps, data.textures, new ArrayList<>(data.sprites), new ArrayList<>(data.animations))){
+                out.writeInt(strings.size());
+                for(String string : strings){
+                    writeString(out, string);
+                }
+            }
+
+            //the table gets filled in once the size of every chunk is known
+            out.writeInt(WorldChunk.SHIFT);
+            tableStart = out.size();
+            for(int i = 0; i <= chunkCount; i++){
+                out.writeLong(0);
+            }
+
+            ByteArrayOutputStream chunkBytes = new ByteArrayOutputStream();
+            DataOutputStream chunkOut = new DataOutputStream(chunkBytes);
+            long offset = tableStart + (chunkCount + 1L) * Long.BYTES;
+
+            for(int chunkY = 0; chunkY < data.chunksY(); chunkY++){
+                for(int chunkX = 0; chunkX < data.chunksX(); chunkX++){
+                    chunkBytes.reset();
+                    writeChunk(chunkOut, data.readChunk(chunkX, chunkY));
+                    chunkOut.flush();
+
+                    offsets[chunkY * data.chunksX() + chunkX] = offset;
+                    chunkBytes.writeTo(out);
+                    offset += chunkBytes.size();
+                }
+            }
+            offsets[chunkCount] = offset;
+        }
+
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)){
+            ByteBuffer table = ByteBuffer.allocate(offsets.length * Long.BYTES);
+            table.asLongBuffer().put(offsets);
+            channel.write(table, tableStart);
+        }
+    }
+
+    /**
+     * Writes one chunk
+     * @param out the stream
+     * @param chunk the chunk
+     * @throws IOException gets thrown when the chunk couldn't be written
+     */
+    private static void writeChunk(DataOutputStream out, ChunkData chunk) throws IOException{
+        for(short[] layer : new short[][]{chunk.wallData(), chunk.floorData(), chunk.roofData()}){
+            for(short cell : layer){
+                out.writeShort(cell);
+            }
+        }
+
+        out.writeInt(chunk.polyWalls().size());
+        for(PolyWallData wall : chunk.polyWalls()){
+            out.writeInt(wall.texture());
+            out.writeBoolean(wall.tile());
+            out.writeDouble(wall.textureOffset());
+            out.writeInt(wall.points().length);
+            for(vec2D point : wall.points()){
+                out.writeDouble(point.x);
+                out.writeDouble(point.y);
+            }
+        }
+
+        out.writeInt(chunk.entities().size());
+        for(EntityData entity : chunk.entities()){
+            writeString(out, entity.name());
+            out.writeBoolean(entity.animated());
+            out.writeDouble(entity.position().x);
+            out.writeDouble(entity.position().y);
+            out.writeDouble(entity.size().x);
+            out.writeDouble(entity.size().y);
+            out.writeInt(entity.yOffset());
+            writeString(out, entity.sprite() != null ? entity.sprite() : "");
+            out.writeInt(entity.animations().length);
+            for(String animation : entity.animations()){
+                writeString(out, animation);
+            }
+        }
+    }
+
+    /**
+     * Reads the header of a compiled world by mapping it into memory, every chunk gets mapped on its own when it is needed (see readChunk)
+     * The mappings are not part of the heap and only cover single chunks, so neither the heap nor the 2 GB limit of a mapping limit the size of a world
+     * @param file the file to read
+     * @return the data of the world (without layers, entities and PolyWalls, see readChunk)
+     * @throws IOException gets thrown when the file couldn't be read or is not a (valid) compiled world of this version
+     */
+    public static WorldData read(File file) throws IOException{
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+            //the header (and the chunk table) lies at the start of the file, the chunks behind it are not needed yet
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), Integer.MAX_VALUE));
+
+            if(buffer.getInt() != MAGIC)
+                throw new IOException(file + " is not a compiled world");
+            int version = buffer.getInt();
+            if(version != VERSION)
+                throw new IOException(file + " has version " + version + ", expected " + VERSION);
+
+            MappedWorldData data = new MappedWorldData(file);
+            data.name = readString(buffer);
+            data.width = buffer.getInt();
+            data.height = buffer.getInt();
+            data.playerStartPos = new vec2D(buffer.getDouble(), buffer.getDouble());
+            data.startRotation = buffer.getDouble();
+
+            readStrings(buffer, data.tileMaps);
+            readStrings(buffer, data.textures);
+            readStrings(buffer, data.sprites);
+            readStrings(buffer, data.animations);
+
+            int shift = buffer.getInt();
+            if(shift != WorldChunk.SHIFT)
+                throw new IOException(file + " has chunks of " + (1 << shift) + " cells, expected " + WorldChunk.SIZE);
+
+            data.offsets = new long[data.chunksX() * data.chunksY() + 1];
+            buffer.asLongBuffer().get(data.offsets);
+            if(data.offsets[data.offsets.length - 1] != channel.size())
+                throw new IOException(file + " is truncated");
+
+            return data;
+        }
+        catch(BufferUnderflowException | NegativeArraySizeException e){
+            throw new IOException(file + " is truncated", e);
+        }
+    }
+
+    /**
+     * The header of a compiled world, maps its chunks from the file one by one
+     */
+    private static class MappedWorldData extends WorldData {
+
+        /**
+         * The compiled file
+         */
+        private final File file;
+        /**
+         * Where every chunk starts inside the file (plus the end of the last chunk)
+         */
+        private long[] offsets;
+
+        /**
+         * @param file the compiled file
+         */
+        private MappedWorldData(File file){
+            this.file = file;
+        }
+
+        /**
+         * @return true, the chunks are read from the mapped file
+         */
+        @Override
+        public boolean isCompiled(){
+            return true;
+        }
+
+        /**
+         * Maps one chunk of the file and reads it (can be called from any thread, every read maps the chunk on its own)
+         * @param chunkX the x coordinate of the chunk
+         * @param chunkY the y coordinate of the chunk
+         * @return the chunk
+         * @throws IOException gets thrown when the chunk couldn't be mapped or is truncated
+         */
+        @Override
+        public ChunkData readChunk(int chunkX, int chunkY) throws IOException{
+            int index = chunkY * chunksX() + chunkX;
+            long length = offsets[index + 1] - offsets[index];
+            if(length < 0 || length > Integer.MAX_VALUE)
+                throw new IOException("Chunk " + chunkX + "," + chunkY + " of " + file + " has an invalid size: " + length);
+
+            try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+                //the mapping stays valid after the channel is closed
+                ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, offsets[index], length);
+
+                short[] wallData = new short[WorldChunk.CELLS];
+                short[] floorData = new short[WorldChunk.CELLS];
+                short[] roofData = new short[WorldChunk.CELLS];
+                for(short[] layer : new short[][]{wallData, floorData, roofData}){
+                    chunk.asShortBuffer().get(layer);
+                    chunk.position(chunk.position() + layer.length * Short.BYTES);
+                }
+
+                List<PolyWallData> polyWalls = new ArrayList<>();
+                int polyWallCount = chunk.getInt();
+                for(int i = 0; i < polyWallCount; i++){
+                    int texture = chunk.getInt();
+                    boolean tile = chunk.get() != 0;
+                    double textureOffset = chunk.getDouble();
+                    vec2D[] points = new vec2D[chunk.getInt()];
+                    for(int p = 0; p < points.length; p++){
+                        points[p] = new vec2D(chunk.getDouble(), chunk.getDouble());
+                    }
+                    polyWalls.add(new PolyWallData(points, texture, tile, textureOffset));
+                }
+
+                List<EntityData> entities = new ArrayList<>();
+                int entityCount = chunk.getInt();
+                for(int i = 0; i < entityCount; i++){
+                    String name = readString(chunk);
+                    boolean animated = chunk.get() != 0;
+                    vec2D position = new vec2D(chunk.getDouble(), chunk.getDouble());
+                    vec2D size = new vec2D(chunk.getDouble(), chunk.getDouble());
+                    int yOffset = chunk.getInt();
+                    String sprite = readString(chunk);
+                    String[] animations = new String[chunk.getInt()];
+                    for(int a = 0; a < animations.length; a++){
+                        animations[a] = readString(chunk);
+                    }
+                    entities.add(new EntityData(name, animated, position, size, yOffset, sprite.isEmpty() ? null : sprite, animations));
+                }
+
+                return new ChunkData(wallData, floorData, roofData, polyWalls, entities);
+            }
+            catch(BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e){
+                throw new IOException("Chunk " + chunkX + "," + chunkY + " of " + file + " is truncated", e);
+            }
+        }
+    }
+
+    /**
+     * Writes a string (length + UTF-8 bytes)
+     * @param out the stream
+     * @param string the string
+     * @throws IOException gets thrown when the string couldn't be written
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException{
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string (length + UTF-8 bytes)
+     * @param buffer the buffer
+     * @return the string
+     */
+    private static String readString(ByteBuffer buffer){
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads a list of strings (count + strings)
+     * @param buffer the buffer
+     * @param strings the collection the strings are added to
+     */
+    private static void readStrings(ByteBuffer buffer, Collection<String> strings){
+        int count = buffer.getInt();
+        for(int i = 0; i < count; i++){
+            strings.add(readString(buffer));
+        }
+    }
+}
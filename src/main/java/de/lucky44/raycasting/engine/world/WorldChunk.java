@@ -0,0 +1,119 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.entities.Entity;
+import de.lucky44.raycasting.rendering.renderables.PolyWall;
+import lombok.Getter;
+
+/**
+ * A square region of the map (SIZE x SIZE cells) with everything lying in it: its part of the wall-, floor- and ceiling-layer,
+ * the PolyWalls passing through it and the entities standing in it
+ * Chunks get paged in and out around the player by the ChunkStreamer, so only the part of a world near the player is in memory
+ * @author Nick Balischewski
+ */
+public class WorldChunk {
+
+    /**
+     * log2 of the chunk size, cell coordinates are turned into chunk coordinates by shifting them
+     */
+    public static final int SHIFT = 6;
+    /**
+     * The width and height of a chunk in cells
+     */
+    public static final int SIZE = 1 << SHIFT;
+    /**
+     * Masks the coordinate of a cell inside its chunk out of a cell coordinate
+     */
+    public static final int MASK = SIZE - 1;
+    /**
+     * The amount of cells of a chunk
+     */
+    public static final int CELLS = SIZE * SIZE;
+
+    /**
+     * The rough amount of memory an entity takes up (entity, sprite and animator), only used for the memory budget
+     */
+    private static final int ENTITY_BYTES = 256;
+
+    /**
+     * The coordinates of the chunk (in chunks, not cells)
+     */
+    @Getter
+    private final int chunkX, chunkY;
+    /**
+     * The wall-, floor- and ceiling-layers of the chunk, each one row-major with CELLS cells (see cellIndex)
+     * Cells outside the map are SOLID_BORDER in the wall-layer
+     */
+    @Getter
+    private final short[] wallData, floorData, roofData;
+    /**
+     * The PolyWalls passing through this chunk (walls crossing a chunk border belong to every chunk they pass through)
+     */
+    @Getter
+    private final PolyWall[] polyWalls;
+    /**
+     * The spatial index of the PolyWall segments inside this chunk, uses the same cell indices as the layers
+     */
+    @Getter
+    private final PolyWallGrid polyWallGrid;
+    /**
+     * The entities standing in this chunk
+     */
+    @Getter
+    private final Entity[] entities;
+    /**
+     * The rough amount of memory the chunk takes up in bytes
+     */
+    @Getter
+    private final long memorySize;
+
+    /**
+     * Initializes the chunk and indexes its PolyWalls
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @param wallData the wall-layer of the chunk
+     * @param floorData the floor-layer of the chunk
+     * @param roofData the ceiling-layer of the chunk
+     * @param polyWalls the PolyWalls passing through the chunk
+     * @param entities the entities standing in the chunk
+     */
+    public WorldChunk(int chunkX, int chunkY, short[] wallData, short[] floorData, short[] roofData, PolyWall[] polyWalls, Entity[] entities){
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.wallData = wallData;
+        this.floorData = floorData;
+        this.roofData = roofData;
+        this.polyWalls = polyWalls;
+        this.entities = entities;
+
+        polyWallGrid = new PolyWallGrid(chunkX << SHIFT, chunkY << SHIFT, SIZE, SIZE, polyWalls);
+        memorySize = 3L * CELLS * Short.BYTES + polyWallGrid.getMemorySize() + (long)entities.length * ENTITY_BYTES;
+    }
+
+    /**
+     * Calculates the index of a cell inside the layers of its chunk
+     * @param x the x coordinate of the cell (in the map)
+     * @param y the y coordinate of the cell (in the map)
+     * @return the index of the cell inside wallData, floorData and roofData of the chunk it lies in
+     */
+    public static int cellIndex(int x, int y){
+        return (y & MASK) << SHIFT | x & MASK;
+    }
+
+    /**
+     * @param cells the width or height of a map in cells
+     * @return the amount of chunks needed to cover it
+     */
+    public static int chunkCount(int cells){
+        return (cells + MASK) >> SHIFT;
+    }
+
+    /**
+     * Finds the chunk a position lies in, positions outside the map belong to the nearest chunk
+     * @param coordinate the x or y coordinate of the position
+     * @param chunkCount the amount of chunks in that direction
+     * @return the chunk coordinate
+     */
+    public static int chunkOf(double coordinate, int chunkCount){
+        return Math.max(0, Math.min(chunkCount - 1, (int)Math.floor(coordinate) >> SHIFT));
+    }
+}
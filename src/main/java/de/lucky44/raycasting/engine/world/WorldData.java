@@ -0,0 +1,249 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Everything a world file describes, independent of the format it was stored in
+ * The text format (WorldTextFormat) and the compiled format (WorldBinaryFormat) both read into this, the World is then built from it chunk by chunk
+ * The text format keeps the whole map in here, the compiled format only its header and reads the chunks from the file when they are needed
+ * Images are only referenced, they get loaded while building the World
+ * @author Nick Balischewski
+ */
+public class WorldData {
+
+    /**
+     * The name of the world
+     */
+    public String name = "";
+    /**
+     * The width and height of the map in cells
+     */
+    public int width, height;
+    /**
+     * The wall-, floor- and ceiling-layers, each one flat and row-major (width * height, without a border)
+     * null if the chunks are read from a file (see readChunk)
+     */
+    public short[] wallData, floorData, roofData;
+
+    /**
+     * The startposition of the player
+     */
+    public vec2D playerStartPos;
+    /**
+     * The starting-rotation of the player
+     */
+    public double startRotation;
+
+    /**
+     * The tilemaps (file names inside t/tilemaps/&lt;name&gt;/)
+     */
+    public final List<String> tileMaps = new ArrayList<>();
+    /**
+     * The textures in id order ("tilemap &lt;tilemap&gt; &lt;tile&gt;" or a file inside t/)
+     */
+    public final List<String> textures = new ArrayList<>();
+    /**
+     * Every sprite used by an entity of the world (each one once), loaded up front so chunks can be built without waiting for images
+     */
+    public final Set<String> sprites = new LinkedHashSet<>();
+    /**
+     * Every animation used by an entity of the world (each one once), loaded up front as well
+     */
+    public final Set<String> animations = new LinkedHashSet<>();
+
+    /**
+     * The entities of the world by the number of their file (e/eN.e), empty if the chunks are read from a file
+     */
+    public final SortedMap<Integer, EntityData> entities = new TreeMap<>();
+    /**
+     * The PolyWalls of the world by the number of their file (pw/pwN.pw), empty if the chunks are read from a file
+     * Files describing an invalid PolyWall have no entry
+     */
+    public final SortedMap<Integer, PolyWallData> polyWalls = new TreeMap<>();
+    /**
+     * The amount of entity and PolyWall files the world consists of (as announced by data.m)
+     */
+    public int entityFiles, polyWallFiles;
+
+    /**
+     * The PolyWalls of every chunk (row-major, null for chunks without any), so cutting a chunk does not test every PolyWall
+     * Built when the first chunk gets cut and thrown away on every change, null until then
+     */
+    private List<List<PolyWallData>> chunkPolyWalls;
+    /**
+     * The entities of every chunk (row-major, null for chunks without any), built and thrown away together with chunkPolyWalls
+     */
+    private List<List<EntityData>> chunkEntities;
+
+    /**
+     * Allocates the (empty) layers
+     * @param width the width of the map
+     * @param height the height of the map
+     */
+    public void allocateLayers(int width, int height){
+        this.width = width;
+        this.height = height;
+        wallData = new short[width * height];
+        floorData = new short[width * height];
+        roofData = new short[width * height];
+    }
+
+    /**
+     * Sets (or removes) an entity and remembers the images it uses
+     * @param file the number of the file of the entity
+     * @param entity the entity, null to remove it
+     * @return the entity which was replaced, null if there was none
+     */
+    public synchronized EntityData setEntity(int file, EntityData entity){
+        invalidateChunkIndex();
+        if(entity == null)
+            return entities.remove(file);
+
+        if(entity.animated())
+            animations.addAll(Arrays.asList(entity.animations()));
+        else if(entity.sprite() != null)
+            sprites.add(entity.sprite());
+        return entities.put(file, entity);
+    }
+
+    /**
+     * Sets (or removes) a PolyWall
+     * @param file the number of the file of the PolyWall
+     * @param wall the PolyWall, null to remove it
+     * @return the PolyWall which was replaced, null if there was none
+     */
+    public synchronized PolyWallData setPolyWall(int file, PolyWallData wall){
+        invalidateChunkIndex();
+        if(wall == null)
+            return polyWalls.remove(file);
+
+        return polyWalls.put(file, wall);
+    }
+
+    /**
+     * Throws the PolyWalls and entities per chunk away, they get sorted into the chunks again with the next chunk that gets cut
+     */
+    private void invalidateChunkIndex(){
+        chunkPolyWalls = null;
+        chunkEntities = null;
+    }
+
+    /**
+     * Sorts all PolyWalls and entities into the chunks they belong to (same order as in the maps)
+     */
+    private void buildChunkIndex(){
+        int chunkCount = chunksX() * chunksY();
+        chunkPolyWalls = new ArrayList<>(Collections.nCopies(chunkCount, null));
+        chunkEntities = new ArrayList<>(Collections.nCopies(chunkCount, null));
+
+        for(PolyWallData wall : polyWalls.values()){
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+            double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for(vec2D point : wall.points()){
+                minX = Math.min(minX, point.x);
+                minY = Math.min(minY, point.y);
+                maxX = Math.max(maxX, point.x);
+                maxY = Math.max(maxY, point.y);
+            }
+
+            //only the chunks around the bounds of the wall are tested, touches still decides
+            int fromX = Math.max(0, Math.floorDiv((int)Math.floor(minX) - 1, WorldChunk.SIZE));
+            int fromY = Math.max(0, Math.floorDiv((int)Math.floor(minY) - 1, WorldChunk.SIZE));
+            int toX = Math.min(chunksX() - 1, Math.floorDiv((int)Math.floor(maxX) + 1, WorldChunk.SIZE));
+            int toY = Math.min(chunksY() - 1, Math.floorDiv((int)Math.floor(maxY) + 1, WorldChunk.SIZE));
+            for(int chunkY = fromY; chunkY <= toY; chunkY++){
+                for(int chunkX = fromX; chunkX <= toX; chunkX++){
+                    if(wall.touches(chunkX << WorldChunk.SHIFT, chunkY << WorldChunk.SHIFT, WorldChunk.SIZE))
+                        add(chunkPolyWalls, chunkY * chunksX() + chunkX, wall);
+                }
+            }
+        }
+
+        for(EntityData entity : entities.values()){
+            int chunkX = WorldChunk.chunkOf(entity.position().x, chunksX());
+            int chunkY = WorldChunk.chunkOf(entity.position().y, chunksY());
+            add(chunkEntities, chunkY * chunksX() + chunkX, entity);
+        }
+    }
+
+    /**
+     * Adds an element to the list of a chunk, the list gets created with the first element
+     * @param index the lists of all chunks
+     * @param chunk the index of the chunk
+     * @param element the element
+     * @param <T> the type of the elements
+     */
+    private static <T> void add(List<List<T>> index, int chunk, T element){
+        List<T> list = index.get(chunk);
+        if(list == null){
+            list = new ArrayList<>();
+            index.set(chunk, list);
+        }
+        list.add(element);
+    }
+
+    /**
+     * @return true if the chunks are read from a compiled file instead of the layers of this data
+     */
+    public boolean isCompiled(){
+        return false;
+    }
+
+    /**
+     * @return the amount of chunks in x direction
+     */
+    public int chunksX(){
+        return WorldChunk.chunkCount(width);
+    }
+
+    /**
+     * @return the amount of chunks in y direction
+     */
+    public int chunksY(){
+        return WorldChunk.chunkCount(height);
+    }
+
+    /**
+     * Cuts one chunk out of the map
+     * @param chunkX the x coordinate of the chunk
+     * @param chunkY the y coordinate of the chunk
+     * @return the chunk
+     * @throws IOException gets thrown when the chunk couldn't be read
+     */
+    public synchronized ChunkData readChunk(int chunkX, int chunkY) throws IOException{
+        short[] chunkWalls = new short[WorldChunk.CELLS];
+        short[] chunkFloor = new short[WorldChunk.CELLS];
+        short[] chunkRoof = new short[WorldChunk.CELLS];
+        //the part of the chunk lying outside the map is solid, so rays stop at the edge of the map
+        Arrays.fill(chunkWalls, World.SOLID_BORDER);
+
+        int x0 = chunkX << WorldChunk.SHIFT;
+        int y0 = chunkY << WorldChunk.SHIFT;
+        int columns = Math.min(WorldChunk.SIZE, width - x0);
+        int rows = Math.min(WorldChunk.SIZE, height - y0);
+        for(int y = 0; y < rows; y++){
+            int from = (y0 + y) * width + x0;
+            System.arraycopy(wallData, from, chunkWalls, y << WorldChunk.SHIFT, columns);
+            System.arraycopy(floorData, from, chunkFloor, y << WorldChunk.SHIFT, columns);
+            System.arraycopy(roofData, from, chunkRoof, y << WorldChunk.SHIFT, columns);
+        }
+
+        if(chunkPolyWalls == null)
+            buildChunkIndex();
+
+        List<PolyWallData> indexedPolyWalls = chunkPolyWalls.get(chunkY * chunksX() + chunkX);
+        List<EntityData> indexedEntities = chunkEntities.get(chunkY * chunksX() + chunkX);
+        return new ChunkData(chunkWalls, chunkFloor, chunkRoof, indexedPolyWalls == null ? List.of() : List.copyOf(indexedPolyWalls),
+                indexedEntities == null ? List.of() : List.copyOf(indexedEntities));
+    }
+}
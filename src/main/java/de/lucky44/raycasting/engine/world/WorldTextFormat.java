@@ -0,0 +1,382 @@
+package de.lucky44.raycasting.engine.world;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes the (hand-written) text format of a world: data.m plus one e/eN.e file per entity and one pw/pwN.pw file per PolyWall
+ * @author Nick Balischewski
+ */
+public final class WorldTextFormat {
+
+    /**
+     * The name of the main file of a world
+     */
+    public static final String DATA_FILE = "data.m";
+
+    private WorldTextFormat(){}
+
+    /**
+     * Reads a world
+     * @param directory the directory of the world
+     * @return the data of the world
+     * @throws IOException gets thrown when a file of the world couldn't be read
+     */
+    public static WorldData read(String directory) throws IOException{
+        WorldData data = new WorldData();
+        readMapData(directory, data);
+        readEntities(directory, data);
+        readPolyWalls(directory, data);
+        return data;
+    }
+
+    /**
+     * Writes a world (only the files, the images it references have to be copied on their own)
+     * The files are numbered like the entities and PolyWalls are in the data, numbers without an entry get no file
+     * @param data the world
+     * @param directory the directory to write to
+     * @throws IOException gets thrown when a file couldn't be written
+     */
+    public static void write(WorldData data, String directory) throws IOException{
+        Path root = Path.of(directory);
+        Files.createDirectories(root.resolve("e"));
+        Files.createDirectories(root.resolve("pw"));
+
+        try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(root.resolve(DATA_FILE)))){
+            out.println("name: " + data.name);
+            out.println("size: " + data.width + " " + data.height);
+            if(data.playerStartPos != null)
+                out.println("playerPos: " + data.playerStartPos.x + " " + data.playerStartPos.y);
+            out.println("playerRot: " + data.startRotation);
+            out.println();
+            out.println("entities: " + data.entityFiles);
+            out.println("polyWalls: " + data.polyWallFiles);
+            out.println();
+            for(String tileMap : data.tileMaps){
+                out.println("tilemap: " + tileMap);
+            }
+            for(String texture : data.textures){
+                out.println("texture: " + texture);
+            }
+            out.println();
+            writeLayer(out, "wallMap:", data.wallData, data.width, data.height);
+            writeLayer(out, "floorMap:", data.floorData, data.width, data.height);
+            writeLayer(out, "roofMap:", data.roofData, data.width, data.height);
+            checkError(out, root.resolve(DATA_FILE));
+        }
+
+        for(Map.Entry<Integer, EntityData> entry : data.entities.entrySet()){
+            EntityData entity = entry.getValue();
+            Path file = root.resolve("e/e" + entry.getKey() + ".e");
+
+            try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))){
+                out.println("type: " + (entity.animated() ? "animated" : "static"));
+                out.println("name: " + entity.name());
+                out.println("position: " + entity.position().x + " " + entity.position().y);
+                out.println("size: " + entity.size().x + " " + entity.size().y);
+                out.println("yOffset: " + entity.yOffset());
+                if(entity.sprite() != null)
+                    out.println("sprite: " + entity.sprite());
+                for(String animation : entity.animations()){
+                    out.println("animation: " + animation);
+                }
+                checkError(out, file);
+            }
+        }
+
+        for(Map.Entry<Integer, PolyWallData> entry : data.polyWalls.entrySet()){
+            PolyWallData wall = entry.getValue();
+            Path file = root.resolve("pw/pw" + entry.getKey() + ".pw");
+
+            try(PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))){
+                out.println("texture: " + wall.texture());
+                out.println("texture_tile: " + wall.tile());
+                out.println("texture_offset: " + wall.textureOffset());
+                for(vec2D point : wall.points()){
+                    out.println("point: " + point.x + " " + point.y);
+                }
+                checkError(out, file);
+            }
+        }
+    }
+
+    /**
+     * Flushes a writer and throws if anything written to it got lost (PrintWriter swallows its IOExceptions)
+     * @param out the writer
+     * @param file the file the writer writes to
+     * @throws IOException gets thrown when the file couldn't be written completely
+     */
+    private static void checkError(PrintWriter out, Path file) throws IOException{
+        if(out.checkError())
+            throw new IOException("Could not write " + file);
+    }
+
+    /**
+     * Writes one layer of data.m (one row per line)
+     * @param out the writer of data.m
+     * @param header the header of the layer
+     * @param layer the layer (row-major)
+     * @param width the width of the map
+     * @param height the height of the map
+     */
+    private static void writeLayer(PrintWriter out, String header, short[] layer, int width, int height){
+        out.println(header);
+        StringBuilder line = new StringBuilder();
+        for(int y = 0; y < height; y++){
+            line.setLength(0);
+            for(int x = 0; x < width; x++){
+                if(x != 0)
+                    line.append(' ');
+                line.append(layer[y * width + x]);
+            }
+            out.println(line);
+        }
+        out.println();
+    }
+
+    /**
+     * Finds the newest modification of any file of the text format, used to check if a compiled world is outdated
+     * @param directory the directory of the world
+     * @return the newest modification time (0 if there is no data.m)
+     */
+    public static long lastModified(String directory){
+        long newest = new File(directory, DATA_FILE).lastModified();
+
+        for(String folder : new String[]{"e", "pw"}){
+            File[] files = new File(directory, folder).listFiles(File::isFile);
+            if(files == null)
+                continue;
+
+            for(File file : files){
+                newest = Math.max(newest, file.lastModified());
+            }
+        }
+        return newest;
+    }
+
+    /**
+     * Reads data.m
+     * @param directoryPath the directory
+     * @param data the data to fill
+     * @throws IOException gets thrown when the no data.m file was found or it has no size
+     */
+    private static void readMapData(String directoryPath, WorldData data) throws IOException {
+        try(BufferedReader reader = new BufferedReader(new FileReader(new File(directoryPath, DATA_FILE)))){
+            String line = reader.readLine();
+            int lineCounter = 0;
+            short[] mapToRead = null;
+
+            while(line != null){
+
+                if(mapToRead != null){
+                    parseRow(line, mapToRead, lineCounter * data.width, data.width);
+                    lineCounter++;
+
+                    if(lineCounter > data.height-1){
+                        mapToRead = null;
+                        lineCounter = 0;
+                    }
+
+                    line = reader.readLine();
+                    continue;
+                }
+
+                String[] parts = line.split(" ");
+
+                switch(parts[0].toLowerCase()){
+                    case("name:") -> data.name = joinFrom(parts, 1);
+                    case("size:") -> data.allocateLayers(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]));
+                    case("playerpos:") -> data.playerStartPos = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                    case("playerrot:") -> data.startRotation = Double.parseDouble(parts[1]);
+                    case("entities:") -> data.entityFiles = Integer.parseInt(parts[1]);
+                    case("polywalls:") -> data.polyWallFiles = Integer.parseInt(parts[1]);
+                    case("texture:") -> data.textures.add(joinFrom(parts, 1));
+                    case("tilemap:") -> data.tileMaps.add(parts[1]);
+                    case("wallmap:") -> {
+                        System.out.println("Reading wall-data");
+                        mapToRead = data.wallData;
+                    }
+                    case("floormap:") -> {
+                        System.out.println("Reading floor-data");
+                        mapToRead = data.floorData;
+                    }
+                    case("roofmap:") -> {
+                        System.out.println("Reading roof-data");
+                        mapToRead = data.roofData;
+                    }
+                }
+
+                line = reader.readLine();
+            }
+        }
+
+        //an empty or half written data.m (e.g. while an editor saves it) would otherwise load as a world without cells
+        if(data.width <= 0 || data.height <= 0)
+            throw new IOException(DATA_FILE + " in " + directoryPath + " has no size");
+
+        System.out.println("Done reading map data...");
+    }
+
+    /**
+     * Parses one row of a layer (numbers separated by whitespace) without splitting the line into strings first
+     * @param line the row
+     * @param layer the layer
+     * @param offset the index of the first cell of the row inside the layer
+     * @param width the width of the map (further numbers get ignored)
+     */
+    private static void parseRow(String line, short[] layer, int offset, int width){
+        int x = 0;
+        int i = 0;
+        int length = line.length();
+
+        while(x < width && i < length){
+            while(i < length && line.charAt(i) <= ' ')
+                i++;
+            if(i >= length)
+                break;
+
+            boolean negative = line.charAt(i) == '-';
+            if(negative)
+                i++;
+
+            int value = 0;
+            while(i < length && line.charAt(i) > ' '){
+                char c = line.charAt(i++);
+                if(c < '0' || c > '9')
+                    throw new NumberFormatException("Invalid cell \"" + c + "\" in row: " + line);
+                value = value * 10 + (c - '0');
+            }
+
+            layer[offset + x++] = (short)(negative ? -value : value);
+        }
+    }
+
+    /**
+     * Reads the entities
+     * @param directory the directory
+     * @param data the data to fill
+     * @throws IOException gets thrown when the entities couldn't be read
+     */
+    private static void readEntities(String directory, WorldData data) throws IOException{
+        for(int i = 0; i < data.entityFiles; i++){
+            data.setEntity(i, readEntity(directory, i));
+        }
+
+        System.out.println("Done reading entity data...");
+    }
+
+    /**
+     * Reads one entity (e/eN.e)
+     * @param directory the directory of the world
+     * @param file the number of the file
+     * @return the entity
+     * @throws IOException gets thrown when the entity couldn't be read
+     */
+    public static EntityData readEntity(String directory, int file) throws IOException{
+        String eName = "";
+        vec2D ePos = vec2D.ZERO.copy();
+        boolean animated = false;
+        List<String> animations = new ArrayList<>();
+        String sprite = null;
+        vec2D size = vec2D.ZERO.copy();
+        int yOffset = 0;
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(directory + "/e/e" + file + ".e"))){
+            String line = reader.readLine();
+
+            while(line != null){
+                String[] parts = line.split(" ");
+
+                switch(parts[0].toLowerCase()){
+                    case("type:") -> animated = !parts[1].equalsIgnoreCase("static");
+                    case("position:") -> ePos = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                    case("name:") -> eName = joinFrom(parts, 1);
+                    case("animation:") -> animations.add(parts[1]);
+                    case("sprite:") -> sprite = joinFrom(parts, 1);
+                    case("size:") -> size = new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                    case("yoffset:") -> yOffset = Integer.parseInt(parts[1]);
+                }
+                line = reader.readLine();
+            }
+        }
+
+        return new EntityData(eName, animated, ePos, size, yOffset, sprite, animations.toArray(String[]::new));
+    }
+
+    /**
+     * Reads the polywalls
+     * @param directory the directory
+     * @param data the data to fill
+     * @throws IOException gets thrown when the polywalls couldn't be read
+     */
+    private static void readPolyWalls(String directory, WorldData data) throws IOException{
+        for(int i = 0; i < data.polyWallFiles; i++){
+            data.setPolyWall(i, readPolyWall(directory, i));
+        }
+
+        System.out.println("Done reading PolyWall data...");
+    }
+
+    /**
+     * Reads one polywall (pw/pwN.pw)
+     * @param directory the directory of the world
+     * @param file the number of the file
+     * @return the PolyWall, null if it has less than 2 points
+     * @throws IOException gets thrown when the polywall couldn't be read
+     */
+    public static PolyWallData readPolyWall(String directory, int file) throws IOException{
+        List<vec2D> points = new ArrayList<>();
+        int texture = 0;
+        boolean tile = true;
+        double texOffset = 0;
+
+        try(BufferedReader reader = new BufferedReader(new FileReader(directory + "/pw/pw" + file + ".pw"))){
+            String line = reader.readLine();
+
+            while(line != null){
+                String[] parts = line.split(" ");
+
+                switch(parts[0].toLowerCase()){
+                    case("point:") -> points.add(new vec2D(Double.parseDouble(parts[1]), Double.parseDouble(parts[2])));
+                    case("texture:") -> texture = Integer.parseInt(parts[1]);
+                    case("texture_tile:") -> tile = Boolean.parseBoolean(parts[1]);
+                    case("texture_offset:") -> texOffset = Double.parseDouble(parts[1]);
+                }
+                line = reader.readLine();
+            }
+        }
+
+        if(points.size() < 2){
+            System.out.println("Could not load polyWall " + "pw" + file + ".pw, since it has less than 2 points");
+            return null;
+        }
+
+        return new PolyWallData(points.toArray(vec2D[]::new), texture, tile, texOffset);
+    }
+
+    /**
+     * Joins the parts of a line back together
+     * @param parts the parts
+     * @param from the index of the first part
+     * @return the parts from the index on, separated by spaces
+     */
+    private static String joinFrom(String[] parts, int from){
+        StringBuilder builder = new StringBuilder();
+        for(int i = from; i < parts.length; i++){
+            if(i != from)
+                builder.append(" ");
+            builder.append(parts[i]);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,246 @@
+package de.lucky44.raycasting.engine.world;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Watches the directory of a world for changed files and reports which assets they belong to
+ * Editors often write a file in several steps, so changes are collected until nothing changed for DEBOUNCE_MS and then reported together
+ * @author Nick Balischewski
+ */
+public class WorldWatcher implements AutoCloseable {
+
+    /**
+     * How long nothing has to change before the collected changes get reported (in milliseconds)
+     */
+    private static final long DEBOUNCE_MS = 200;
+    /**
+     * The file name of a PolyWall (pw/pwN.pw)
+     */
+    private static final Pattern POLY_WALL_FILE = Pattern.compile("pw(\\d+)\\.pw");
+    /**
+     * The file name of an entity (e/eN.e)
+     */
+    private static final Pattern ENTITY_FILE = Pattern.compile("e(\\d+)\\.e");
+
+    /**
+     * Everything that changed since the last report
+     */
+    public static class Changes {
+        /**
+         * true if the world has to be loaded again completely (data.m or the compiled world changed, or changes got lost)
+         */
+        public boolean everything;
+        /**
+         * The numbers of the changed PolyWall files
+         */
+        public final Set<Integer> polyWalls = new HashSet<>();
+        /**
+         * The numbers of the changed entity files
+         */
+        public final Set<Integer> entities = new HashSet<>();
+        /**
+         * The names of the changed tilemaps (their directory inside t/tilemaps/)
+         */
+        public final Set<String> tileMaps = new HashSet<>();
+        /**
+         * The changed image files inside t/
+         */
+        public final Set<String> textureFiles = new HashSet<>();
+        /**
+         * The changed image files inside e/sprites/
+         */
+        public final Set<String> spriteFiles = new HashSet<>();
+        /**
+         * The names of the changed animations (their directory inside e/sprites/anim/)
+         */
+        public final Set<String> animations = new HashSet<>();
+
+        /**
+         * @return true if nothing the world uses changed
+         */
+        public boolean isEmpty(){
+            return !everything && polyWalls.isEmpty() && entities.isEmpty() && tileMaps.isEmpty()
+                    && textureFiles.isEmpty() && spriteFiles.isEmpty() && animations.isEmpty();
+        }
+
+        /**
+         * @return the amount of changed assets
+         */
+        public int size(){
+            return polyWalls.size() + entities.size() + tileMaps.size() + textureFiles.size() + spriteFiles.size() + animations.size();
+        }
+    }
+
+    /**
+     * The directory of the world
+     */
+    private final Path directory;
+    /**
+     * The service the directories are registered at
+     */
+    private final WatchService service;
+    /**
+     * Gets the collected changes (on the watching thread)
+     */
+    private final Consumer<Changes> onChange;
+
+    /**
+     * Registers every directory of the world and starts the watching thread
+     * @param directory the directory of the world
+     * @param onChange gets the collected changes (on the watching thread)
+     * @throws IOException gets thrown when the directories couldn't be registered
+     */
+    public WorldWatcher(String directory, Consumer<Changes> onChange) throws IOException{
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        this.onChange = onChange;
+        service = this.directory.getFileSystem().newWatchService();
+
+        try(Stream<Path> directories = Files.walk(this.directory)){
+            for(Path path : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator){
+                register(path);
+            }
+        }
+
+        Thread thread = new Thread(this::watch, "World-Watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Registers one directory
+     * @param path the directory
+     * @throws IOException gets thrown when the directory couldn't be registered
+     */
+    private void register(Path path) throws IOException{
+        path.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    /**
+     * Collects and reports changes until the watcher gets closed
+     */
+    private void watch(){
+        try{
+            while(true){
+                Changes changes = new Changes();
+                collect(service.take(), changes);
+
+                WatchKey key;
+                while((key = service.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null){
+                    collect(key, changes);
+                }
+
+                if(changes.isEmpty())
+                    continue;
+
+                try{
+                    onChange.accept(changes);
+                }
+                catch(RuntimeException e){
+                    System.out.println("[ERROR] Could not reload the changed world files");
+                    e.printStackTrace();
+                }
+            }
+        }
+        catch(ClosedWatchServiceException | InterruptedException e){
+            //closed
+        }
+    }
+
+    /**
+     * Sorts the events of a key into the changes
+     * @param key the key
+     * @param changes the changes to fill
+     */
+    private void collect(WatchKey key, Changes changes){
+        Path parent = (Path) key.watchable();
+
+        for(WatchEvent<?> event : key.pollEvents()){
+            if(event.kind() == StandardWatchEventKinds.OVERFLOW){
+                changes.everything = true;
+                continue;
+            }
+
+            Path path = parent.resolve((Path) event.context());
+            if(event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)){
+                try{
+                    register(path);
+                }
+                catch(IOException e){
+                    System.out.println("[ERROR] Could not watch " + path);
+                    e.printStackTrace();
+                }
+            }
+
+            classify(directory.relativize(path), changes);
+        }
+
+        key.reset();
+    }
+
+    /**
+     * Finds out which asset a changed file belongs to
+     * @param path the path of the file, relative to the directory of the world
+     * @param changes the changes to add it to
+     */
+    private static void classify(Path path, Changes changes){
+        int parts = path.getNameCount();
+        String first = path.getName(0).toString();
+        String file = path.getFileName().toString();
+
+        if(parts == 1){
+            if(file.equals(WorldTextFormat.DATA_FILE) || file.equals(WorldBinaryFormat.FILE_NAME))
+                changes.everything = true;
+        }
+        else if(first.equals("pw") && parts == 2){
+            Matcher matcher = POLY_WALL_FILE.matcher(file);
+            if(matcher.matches())
+                changes.polyWalls.add(Integer.parseInt(matcher.group(1)));
+        }
+        else if(first.equals("t")){
+            if(parts == 2)
+                changes.textureFiles.add(file);
+            else if(path.getName(1).toString().equals("tilemaps"))
+                changes.tileMaps.add(path.getName(2).toString());
+        }
+        else if(first.equals("e")){
+            if(parts == 2){
+                Matcher matcher = ENTITY_FILE.matcher(file);
+                if(matcher.matches())
+                    changes.entities.add(Integer.parseInt(matcher.group(1)));
+            }
+            else if(path.getName(1).toString().equals("sprites")){
+                if(parts == 3)
+                    changes.spriteFiles.add(file);
+                else if(path.getName(2).toString().equals("anim"))
+                    changes.animations.add(path.getName(3).toString());
+            }
+        }
+    }
+
+    /**
+     * Stops watching
+     */
+    @Override
+    public void close(){
+        try{
+            service.close();
+        }
+        catch(IOException e){
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package de.lucky44.raycasting.rendering;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.world.World;
+import lombok.Getter;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Renders frames of a World into an offscreen buffer, without any window, panel or scene
+ * Runs with java.awt.headless=true, so frames can be produced for benchmarks, regression tests and thumbnails on machines without a display
+ * @author Nick Balischewski
+ */
+public class HeadlessRenderer {
+
+    /**
+     * The renderer which does the actual work (the same one the game uses)
+     */
+    private final RaycasterRenderer renderer = new RaycasterRenderer();
+    /**
+     * The World which is rendered
+     */
+    @Getter
+    private final World world;
+
+    /**
+     * Initializes the renderer for the given World
+     * @param world the World to render
+     */
+    public HeadlessRenderer(World world){
+        this.world = world;
+        renderer.setWorld(world);
+    }
+
+    /**
+     * Should the rays be traced and rasterised in parallel column bands
+     * @param parallel true for parallel raycasting
+     */
+    public void setParallel(boolean parallel){
+        renderer.setParallel(parallel);
+    }
+
+    /**
+     * Renders one frame
+     * @param position the position of the camera
+     * @param rotation the rotation of the camera in radians
+     * @return the RGB pixels of the frame (row-major, VIEWPORT_WIDTH pixels per row, the top byte is no valid alpha and has to be ignored),
+     * the array is reused by the next frame
+     */
+    public int[] renderFrame(vec2D position, double rotation){
+        //there is no player streaming the world in, so the chunks around the camera are loaded right here
+        world.loadAround(position);
+
+        renderer.flushBuffers();
+        renderer.flushRenderCache();
+
+        renderer.updateCamera(position, rotation);
+        renderer.rayCast();
+        renderer.calculateEntities();
+        renderer.rasterise();
+
+        return renderer.getPixels();
+    }
+
+    /**
+     * Renders one frame
+     * @param position the position of the camera
+     * @param rotation the rotation of the camera in radians
+     * @return the frame as an image (VIEWPORT_WIDTH x VIEWPORT_HEIGHT), the image is reused by the next frame
+     */
+    public BufferedImage renderImage(vec2D position, double rotation){
+        renderFrame(position, rotation);
+        return renderer.getScreenBuffer();
+    }
+
+    /**
+     * Renders a thumbnail of a world to a png file
+     * Usage: HeadlessRenderer worldDirectory output.png [x y rotation] [width]
+     * @param args the arguments
+     */
+    public static void main(String[] args){
+        System.setProperty("java.awt.headless", "true");
+
+        if(args.length < 2){
+            System.out.println("Usage: HeadlessRenderer <worldDirectory> <output.png> [x y rotation] [width]");
+            return;
+        }
+
+        World world = new World(args[0]);
+        vec2D position = world.getPlayerStartPos();
+        double rotation = world.getStartRotation();
+
+        if(args.length >= 5){
+            position = new vec2D(Double.parseDouble(args[2]), Double.parseDouble(args[3]));
+            rotation = Double.parseDouble(args[4]);
+        }
+
+        int width = args.length == 3 || args.length >= 6 ? Integer.parseInt(args[args.length - 1]) : Const.VIEWPORT_WIDTH;
+        int height = width * Const.VIEWPORT_HEIGHT / Const.VIEWPORT_WIDTH;
+
+        BufferedImage frame = new HeadlessRenderer(world).renderImage(position, rotation);
+
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = thumbnail.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(frame, 0, 0, width, height, null);
+        g.dispose();
+
+        try{
+            ImageIO.write(thumbnail, "png", new File(args[1]));
+            System.out.println("Rendered " + world.getName() + " to " + args[1]);
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not write thumbnail " + args[1]);
+            e.printStackTrace();
+        }
+    }
+}
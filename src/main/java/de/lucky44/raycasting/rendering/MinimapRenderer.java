@@ -0,0 +1,174 @@
+package de.lucky44.raycasting.rendering;
+
+import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.world.World;
+import de.lucky44.raycasting.rendering.renderables.PolyWall;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+/**
+ * Draws the DEBUG-map from a cached image of the wall grid and the PolyWalls, which is only redrawn once the world changed
+ * Maps bigger than MINIMAP_VIEW_CELLS only show a window around the player, the cache then covers a bit more than the window,
+ * so it only has to be redrawn every half window the player walks
+ * Everything moving (player, entities, rays) is drawn on top through createOverlay
+ * @author Nick Balischewski
+ */
+public class MinimapRenderer {
+
+    /**
+     * The cached wall grid and PolyWalls
+     */
+    private BufferedImage cache;
+    /**
+     * The world the cache was drawn from
+     */
+    private World cachedWorld;
+    /**
+     * The revision of the world the cache was drawn from (see World.getRevision)
+     */
+    private int cachedRevision;
+    /**
+     * The cell size the cache was drawn with
+     */
+    private int cachedCellWidth, cachedCellHeight;
+    /**
+     * The first cell the cache covers (in cells)
+     */
+    private int cacheX, cacheY;
+    /**
+     * The amount of cells the cache covers
+     */
+    private int cacheColumns, cacheRows;
+
+    /**
+     * The cell size of the map
+     */
+    private int cellWidth, cellHeight;
+    /**
+     * The top left corner of the window (in map pixels)
+     */
+    private int viewX, viewY;
+    /**
+     * The size of the window (in screen pixels)
+     */
+    private int viewWidth, viewHeight;
+
+    /**
+     * The amount of cells shown in each direction
+     * @param world the world
+     * @return the amount of cells the window of the map is wide and high
+     */
+    public static int getViewCells(World world){
+        return Math.min(world.getCellResolution(), Const.MINIMAP_VIEW_CELLS);
+    }
+
+    /**
+     * Moves the window to the player and redraws the cache if the world changed or the window left it
+     * @param world the world to draw
+     * @param playerPos the position of the player (in cells)
+     * @param cellWidth the width of one cell (in pixels)
+     * @param cellHeight the height of one cell (in pixels)
+     */
+    public void update(World world, vec2D playerPos, int cellWidth, int cellHeight){
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+
+        int viewColumns = Math.min(world.Width(), Const.MINIMAP_VIEW_CELLS);
+        int viewRows = Math.min(world.Height(), Const.MINIMAP_VIEW_CELLS);
+
+        //the window follows the player, but never leaves the map
+        double originX = Math.max(0, Math.min(world.Width() - viewColumns, playerPos.x - viewColumns / 2d));
+        double originY = Math.max(0, Math.min(world.Height() - viewRows, playerPos.y - viewRows / 2d));
+        viewX = (int)(originX * cellWidth);
+        viewY = (int)(originY * cellHeight);
+        viewWidth = viewColumns * cellWidth + 1;
+        viewHeight = viewRows * cellHeight + 1;
+
+        int step = Math.max(1, Const.MINIMAP_VIEW_CELLS / 2);
+        int columns = Math.min(world.Width(), viewColumns + step);
+        int rows = Math.min(world.Height(), viewRows + step);
+        int x = Math.min((int)originX / step * step, world.Width() - columns);
+        int y = Math.min((int)originY / step * step, world.Height() - rows);
+
+        if(world == cachedWorld && world.getRevision() == cachedRevision && cellWidth == cachedCellWidth && cellHeight == cachedCellHeight
+                && x == cacheX && y == cacheY && columns == cacheColumns && rows == cacheRows)
+            return;
+
+        cachedWorld = world;
+        cachedRevision = world.getRevision();
+        cachedCellWidth = cellWidth;
+        cachedCellHeight = cellHeight;
+        cacheX = x;
+        cacheY = y;
+        cacheColumns = columns;
+        cacheRows = rows;
+        redraw(world);
+    }
+
+    /**
+     * Draws the wall grid and the PolyWalls into the cache
+     * @param world the world to draw
+     */
+    private void redraw(World world){
+        int width = cacheColumns * cellWidth + 1;
+        int height = cacheRows * cellHeight + 1;
+        if(cache == null || cache.getWidth() != width || cache.getHeight() != height)
+            cache = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+
+        Graphics2D g = cache.createGraphics();
+        g.setPaint(Color.white);
+        g.fillRect(0, 0, width, height);
+
+        g.setPaint(Color.black);
+        for(int y = 0; y < cacheRows; y++){
+            for(int x = 0; x < cacheColumns; x++){
+                if(world.getCellWall(cacheX + x, cacheY + y) != 0)
+                    g.fillRect(cellWidth * x, cellHeight * y, cellWidth, cellHeight);
+            }
+        }
+
+        g.setPaint(Color.gray);
+        g.setStroke(new BasicStroke(1));
+        for(int x = 0; x <= cacheColumns; x++){
+            g.drawLine(cellWidth * x, 0, cellWidth * x, height - 1);
+        }
+        for(int y = 0; y <= cacheRows; y++){
+            g.drawLine(0, cellHeight * y, width - 1, cellHeight * y);
+        }
+
+        g.translate(-cacheX * cellWidth, -cacheY * cellHeight);
+        for(PolyWall p : world.getPolyWalls()){
+            if(p == null)
+                continue;
+
+            p.renderToMap(g, cellWidth, cellHeight);
+        }
+        g.dispose();
+    }
+
+    /**
+     * Draws the cached map (update has to be called first)
+     * @param g the Graphics2D Instance to draw on
+     */
+    public void drawMap(Graphics2D g){
+        if(cache == null)
+            return;
+
+        Graphics2D map = (Graphics2D) g.create(0, 0, viewWidth, viewHeight);
+        map.drawImage(cache, cacheX * cellWidth - viewX, cacheY * cellHeight - viewY, null);
+        map.dispose();
+    }
+
+    /**
+     * Creates a Graphics2D to draw on top of the map in map coordinates (cell * cellWidth), clipped to the window
+     * @param g the Graphics2D Instance the map is drawn on
+     * @return the Graphics2D of the overlay, has to be disposed
+     */
+    public Graphics2D createOverlay(Graphics2D g){
+        Graphics2D overlay = (Graphics2D) g.create(0, 0, viewWidth, viewHeight);
+        overlay.translate(-viewX, -viewY);
+        return overlay;
+    }
+}
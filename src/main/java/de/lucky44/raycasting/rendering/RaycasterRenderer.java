@@ -1,20 +1,27 @@
 package de.lucky44.raycasting.rendering;
 
 import de.lucky44.raycasting.engine.Const;
+import de.lucky44.raycasting.engine.diagnostics.RayCastEvent;
+import de.lucky44.raycasting.engine.diagnostics.RenderEvent;
 import de.lucky44.raycasting.engine.entities.Entity;
 import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.rendering.Camera;
 import de.lucky44.raycasting.engine.rendering.Renderable;
 import de.lucky44.raycasting.engine.rendering.Renderer;
+import de.lucky44.raycasting.engine.rendering.TextureManager;
+import de.lucky44.raycasting.engine.time.FrameProfiler;
 import de.lucky44.raycasting.rendering.renderables.Ray;
-import de.lucky44.raycasting.engine.scenes.Scene;
+import de.lucky44.raycasting.rendering.renderables.Sprite;
 import de.lucky44.raycasting.engine.world.World;
-import de.lucky44.raycasting.scenes.SinglePlayerScene;
+import de.lucky44.raycasting.engine.world.WorldChunk;
+import lombok.Getter;
 import lombok.Setter;
 
 import java.awt.*;
-import java.awt.event.KeyEvent;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Implementation of the Renderer specifically for Raycasting
@@ -29,66 +36,326 @@ public class RaycasterRenderer extends Renderer {
     /**
      * The World which is supposed to be rendered
      */
-    @Setter
+    @Getter
     private World world;
     /**
-     * The Scene which holds this renderer
-     */
-    private SinglePlayerScene parent;
-    /**
-     * The avgRayPerformance to be used by DEBUG
+     * Times the rasterisation of every frame, null to not profile at all
      */
-    public long avgPerformance = 0;
+    @Setter
+    private FrameProfiler profiler;
 
     /**
      * All Renderables currently awaiting rendering
      */
     private final List<Renderable> renderables = new ArrayList<>();
+    /**
+     * All sprites of entities currently awaiting rendering, they get drawn after the walls and back to front
+     */
+    private final List<Renderable> sprites = new ArrayList<>();
+    /**
+     * Sorts sprites from the farthest to the nearest
+     */
+    private static final Comparator<Renderable> BACK_TO_FRONT = (a, b) -> Double.compare(b.distanceToPlayer, a.distanceToPlayer);
+
+    /**
+     * Should the rays be traced and rasterised in parallel column bands
+     */
+    @Getter
+    @Setter
+    private volatile boolean parallel = Const.PARALLEL_RAYCASTING;
+    /**
+     * The worker pool for parallel raycasting (only created once it is needed)
+     */
+    private ForkJoinPool rayPool;
+    /**
+     * Were the wall stripes (and floor/ceiling) of the current frame already rasterised while raycasting
+     */
+    private boolean raysRasterised = false;
+    /**
+     * The Camera all rays and sprites are projected with
+     */
+    @Getter
+    private final Camera camera = new Camera(Const.FOV, Const.RAYCASTER_RESOLUTION);
+    /**
+     * The position of the camera (copied, so the rays of one frame all start at the same point)
+     */
+    private final vec2D cameraPosition = new vec2D(0, 0);
 
     /**
-     * Initializes all important references
-     * @param parent the Scene which holds this Renderer
+     * Initializes the rays
      */
-    public RaycasterRenderer(Scene parent){
-        super((SinglePlayerScene) parent);
+    public RaycasterRenderer(){
         rays = new Ray[Const.RAYCASTER_RESOLUTION];
         for(int i = 0; i < rays.length; i++){
-            rays[i] = new Ray(parent, i);
-            this.parent = (SinglePlayerScene) parent;
+            rays[i] = new Ray(i);
         }
     }
 
     /**
-     * Calculates all rays
-     * @param g the Graphics2D instance to be used for DEBUG drawing
-     * @param startPos the StartPosition of the Rays
+     * Sets the World which is supposed to be rendered, the depth range follows the size of the world
+     * @param world the World
+     */
+    public void setWorld(World world){
+        this.world = world;
+        if(world != null)
+            setDepthRange(world.getCellResolution());
+    }
+
+    /**
+     * Moves the camera to the player's position and rotation, needs to happen before rayCast and calculateEntities
+     * @param position the position of the Camera/Player
      * @param rotation the rotation of the Camera/Player
-     * @param DEBUG_MODE which DEBUG_MODE are we in?
      */
-    public void rayCast(Graphics2D g, vec2D startPos, double rotation, int DEBUG_MODE){
+    public void updateCamera(vec2D position, double rotation){
+        camera.update(position, rotation);
+        cameraPosition.set(position);
+    }
+
+    /**
+     * Calculates all rays
+     */
+    public void rayCast(){
+        RayCastEvent event = new RayCastEvent();
+        event.begin();
 
-        double step = (double) Const.FOV / Const.RAYCASTER_RESOLUTION;
-        double rAngle = rotation - Const.DR * step * ((double) Const.RAYCASTER_RESOLUTION /2);
-        vec2D dirVector = new vec2D(Math.cos(rAngle), Math.sin(rAngle));
-        dirVector.normalize();
+        if(parallel){
+            rayCastParallel();
+        }
+        else{
+            raysRasterised = false;
+
+            for (int i = 0; i < rays.length; i++) {
+                Ray ray = rays[i];
+                ray.calculateRay(world, cameraPosition, camera.rayDirX(i), camera.rayDirY(i));
+                renderables.add(ray);
+            }
+        }
+
+        //the counters are only summed up if the event is recorded
+        if(event.shouldCommit()){
+            event.rays = rays.length;
+            event.parallel = parallel;
+            for(Ray ray : rays){
+                event.polyWallTests += ray.getPolyWallTests();
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Renders the rays of the current frame to the DEBUG-map
+     * @param g the Graphics2D instance to draw on
+     * @param cellWidth the width of one map-cell on the DEBUG-map
+     * @param cellHeight the height of one map-cell on the DEBUG-map
+     */
+    public void renderRaysToMap(Graphics2D g, int cellWidth, int cellHeight){
+        for(Ray ray : rays){
+            ray.renderToMap(g, cellWidth, cellHeight);
+        }
+    }
+
+    /**
+     * Calculates and rasterises all rays in column bands on the worker pool
+     * Every band only writes its own columns of the screen- and depth-buffer, so no locking is needed
+     */
+    private void rayCastParallel(){
+        if(world == null)
+            return;
+
+        if(rayPool == null)
+            rayPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
-        for (Ray ray : rays) {
-            long startTime = System.nanoTime();
-            ray.calculateRay(world, startPos, dirVector, rAngle, rotation);
+        int rowBandHeight = Math.max(Const.RAYCASTER_MIN_BAND_HEIGHT, Const.VIEWPORT_HEIGHT / 2 / (rayPool.getParallelism() * 4));
+        rayPool.invoke(new RowBand(0, Const.VIEWPORT_HEIGHT / 2, rowBandHeight));
 
-            if (DEBUG_MODE == KeyEvent.VK_4)
-                ray.renderToMap(g);
+        int bandWidth = Math.max(Const.RAYCASTER_MIN_BAND_WIDTH, rays.length / (rayPool.getParallelism() * 4));
+
+        rayPool.invoke(new RayBand(0, rays.length, bandWidth));
+        raysRasterised = true;
+    }
 
-            avgPerformance = (avgPerformance + (System.nanoTime() - startTime)) / 2;
+    /**
+     * A band of neighbouring rays, which splits itself in half until it is at most bandWidth rays wide
+     */
+    private class RayBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
 
-            rAngle += Const.DR * step;
-            dirVector.x = Math.cos(rAngle);
-            dirVector.y = Math.sin(rAngle);
-            dirVector.normalize();
+        /**
+         * The first ray of the band
+         */
+        private final int from;
+        /**
+         * The ray after the last ray of the band
+         */
+        private final int to;
+        /**
+         * The widest a band may be before it gets split
+         */
+        private final int bandWidth;
 
-            renderables.add(ray);
+        private RayBand(int from, int to, int bandWidth){
+            this.from = from;
+            this.to = to;
+            this.bandWidth = bandWidth;
         }
 
+        @Override
+        protected void compute(){
+            if(to - from > bandWidth){
+                int middle = (from + to) >>> 1;
+                invokeAll(new RayBand(from, middle, bandWidth), new RayBand(middle, to, bandWidth));
+                return;
+            }
+
+            for(int i = from; i < to; i++){
+                rays[i].calculateRay(world, cameraPosition, camera.rayDirX(i), camera.rayDirY(i));
+                rays[i].render(RaycasterRenderer.this, world.getTextureManager());
+            }
+        }
+    }
+
+    /**
+     * A band of neighbouring floor/ceiling rows, which splits itself in half until it is at most bandHeight rows high
+     */
+    private class RowBand extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first row of the band
+         */
+        private final int from;
+        /**
+         * The row after the last row of the band
+         */
+        private final int to;
+        /**
+         * The highest a band may be before it gets split
+         */
+        private final int bandHeight;
+
+        private RowBand(int from, int to, int bandHeight){
+            this.from = from;
+            this.to = to;
+            this.bandHeight = bandHeight;
+        }
+
+        @Override
+        protected void compute(){
+            if(to - from > bandHeight){
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowBand(from, middle, bandHeight), new RowBand(middle, to, bandHeight));
+                return;
+            }
+
+            for(int row = from; row < to; row++){
+                castFloorRow(row);
+            }
+        }
+    }
+
+    /**
+     * Casts the floor and ceiling of the whole viewport into the screen buffer
+     */
+    private void drawFloorAndCeiling(){
+        for(int row = 0; row < Const.VIEWPORT_HEIGHT / 2; row++){
+            castFloorRow(row);
+        }
+    }
+
+    /**
+     * Casts one floor row and the ceiling row mirrored to it (both lie at the same distance and see the same map cells)
+     * The whole row has one distance, so its map coordinates are walked with a constant step and no pixel needs a division
+     * Cells without a floor/roof texture (0) get the flat FLOOR_COLOR/SKY_COLOR
+     * @param row the distance of the rows to the horizon (0 = the rows right next to it)
+     */
+    private void castFloorRow(int row){
+        int horizon = Const.VIEWPORT_HEIGHT / 2;
+        int floorRow = horizon + row;
+        int roofRow = horizon - 1 - row;
+        if(floorRow >= Const.VIEWPORT_HEIGHT || roofRow < 0)
+            return;
+
+        //same projection as the wall stripes (Ray.drawTexWall), so the floor meets the bottom of the walls
+        double distance = Const.WALL_SCALE / (2 * (row + 0.5d));
+
+        //the rays through the left edge and the center of the first pixel, then one pixel further per step
+        double stepX = distance * 2 * camera.planeX / Const.VIEWPORT_WIDTH;
+        double stepY = distance * 2 * camera.planeY / Const.VIEWPORT_WIDTH;
+        double mapX = cameraPosition.x + distance * (camera.dirX - camera.planeX) + stepX / 2;
+        double mapY = cameraPosition.y + distance * (camera.dirY - camera.planeY) + stepY / 2;
+
+        TextureManager textures = world.getTextureManager();
+        int textureCount = textures.getTextureCount();
+        int level = TextureManager.getShadeLevel(distance);
+        int width = world.Width();
+        int height = world.Height();
+        int floorColor = Const.FLOOR_COLOR.getRGB();
+        int skyColor = Const.SKY_COLOR.getRGB();
+
+        int[] pixels = getPixels();
+        int floorPixel = floorRow * Const.VIEWPORT_WIDTH;
+        int roofPixel = roofRow * Const.VIEWPORT_WIDTH;
+
+        //the layers of the chunk the row currently walks through, only looked up again when the row crosses a chunk border
+        int chunkX = Integer.MIN_VALUE;
+        int chunkY = Integer.MIN_VALUE;
+        short[] floorData = null;
+        short[] roofData = null;
+
+        for(int x = 0; x < Const.VIEWPORT_WIDTH; x++, mapX += stepX, mapY += stepY){
+            int cellX = (int) mapX;
+            int cellY = (int) mapY;
+
+            if(mapX < 0 || mapY < 0 || cellX >= width || cellY >= height){
+                pixels[floorPixel + x] = floorColor;
+                pixels[roofPixel + x] = skyColor;
+                continue;
+            }
+
+            if(cellX >> WorldChunk.SHIFT != chunkX || cellY >> WorldChunk.SHIFT != chunkY){
+                chunkX = cellX >> WorldChunk.SHIFT;
+                chunkY = cellY >> WorldChunk.SHIFT;
+                WorldChunk chunk = world.getChunk(chunkX, chunkY);
+                floorData = chunk == null ? null : chunk.getFloorData();
+                roofData = chunk == null ? null : chunk.getRoofData();
+            }
+
+            //chunks which are not streamed in (yet) are drawn flat
+            if(floorData == null){
+                pixels[floorPixel + x] = floorColor;
+                pixels[roofPixel + x] = skyColor;
+                continue;
+            }
+
+            int cell = WorldChunk.cellIndex(cellX, cellY);
+            double fractionX = mapX - cellX;
+            double fractionY = mapY - cellY;
+
+            int floorTexture = floorData[cell] - 1;
+            pixels[floorPixel + x] = floorTexture < 0 || floorTexture >= textureCount ? floorColor
+                    : sampleFloor(textures, floorTexture, 0, level, fractionX, fractionY);
+
+            //the ceiling is seen from below, so it uses the darker side
+            int roofTexture = roofData[cell] - 1;
+            pixels[roofPixel + x] = roofTexture < 0 || roofTexture >= textureCount ? skyColor
+                    : sampleFloor(textures, roofTexture, 1, level, fractionX, fractionY);
+        }
+    }
+
+    /**
+     * Samples a floor/ceiling texture
+     * @param textures the TextureManager
+     * @param texture the texture id
+     * @param side the side (1 is darkened)
+     * @param level the fog shade level
+     * @param fractionX the X position inside the map cell (0 to 1)
+     * @param fractionY the Y position inside the map cell (0 to 1)
+     * @return the texel
+     */
+    private static int sampleFloor(TextureManager textures, int texture, int side, int level, double fractionX, double fractionY){
+        int w = textures.getTextureWidth(texture);
+        int h = textures.getTextureHeight(texture);
+        return textures.getShadedTexels(texture, side, level)[(int)(fractionX * w) * h + (int)(fractionY * h)];
     }
 
     /**
@@ -96,22 +363,34 @@ public class RaycasterRenderer extends Renderer {
      */
     public void flushRenderCache(){
         renderables.clear();
+        sprites.clear();
     }
 
     /**
-     * Calculates all entities which are to be rendered
-     * @param g the Graphics2D instance for DEBUG drawing
-     * @param startPos the player/camera position
-     * @param rotation the player/camera rotation
-     * @param normal the normal direction of the Player ?
+     * Calculates all entities which are to be rendered (at their current positions)
      */
-    public void calculateEntities(Graphics2D g, vec2D startPos, double rotation, vec2D normal){
+    public void calculateEntities(){
         if(world == null)
             return;
 
         for(Entity e : world.getEntities()){
-            e.calculateRender(startPos, normal, g, parent, rotation);
-            renderables.add(e.spriteRenderer);
+            e.calculateRender(camera);
+            sprites.add(e.spriteRenderer);
+        }
+    }
+
+    /**
+     * Calculates all entities which are to be rendered
+     * @param entities the entities (World.getEntities() at the time the positions were taken, the loaded entities change while streaming)
+     * @param positions the positions the entities are rendered at (same order as entities)
+     */
+    public void calculateEntities(Entity[] entities, vec2D[] positions){
+        if(world == null)
+            return;
+
+        for(int i = 0; i < entities.length; i++){
+            entities[i].calculateRender(positions[i], camera);
+            sprites.add(entities[i].spriteRenderer);
         }
     }
 
@@ -125,18 +404,62 @@ public class RaycasterRenderer extends Renderer {
         if(world == null)
             return;
 
-        //Draw sky and floor
-        fillRect(Const.VIEWPORT_WIDTH, 0, Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT/2, Const.SKY_COLOR.getRGB());
-        fillRect(Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT/2, Const.VIEWPORT_WIDTH, Const.VIEWPORT_HEIGHT/2, Const.FLOOR_COLOR.getRGB());
+        RenderEvent event = new RenderEvent();
+        event.begin();
 
+        rasterise();
 
-        //renderables.sort(Comparator.comparingDouble(o -> o.distanceToPlayer));
-        //Collections.reverse(renderables);
+        long time = System.nanoTime();
+        super.render(g);
+        if(profiler != null)
+            profiler.record(FrameProfiler.Stage.PRESENT, time);
+
+        if(event.shouldCommit()){
+            event.renderables = renderables.size();
+            event.sprites = sprites.size();
+            event.spritesOnScreen = getSpritesOnScreen();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the amount of sprites of the current frame which lie (at least partly) in front of the camera
+     */
+    public int getSpritesOnScreen(){
+        int onScreen = 0;
+        for(Renderable sprite : sprites){
+            if(sprite instanceof Sprite s && s.isOnScreen())
+                onScreen++;
+        }
+        return onScreen;
+    }
+
+    /**
+     * Rasterises the current frame into the screen buffer, without drawing it anywhere
+     */
+    public void rasterise(){
+
+        if(world == null)
+            return;
+
+        long time = System.nanoTime();
+
+        //Draw ceiling and floor (already happened if the rays were rasterised in parallel)
+        if(!raysRasterised)
+            drawFloorAndCeiling();
 
         for(Renderable r : renderables){
             r.render(this, world.getTextureManager());
         }
+        if(profiler != null)
+            time = profiler.record(FrameProfiler.Stage.WALLS, time);
 
-        super.render(g);
+        //sprites are only clipped against the walls, so the nearer ones have to be drawn last
+        sprites.sort(BACK_TO_FRONT);
+        for(Renderable sprite : sprites){
+            sprite.render(this, world.getTextureManager());
+        }
+        if(profiler != null)
+            profiler.record(FrameProfiler.Stage.SPRITES, time);
     }
 }
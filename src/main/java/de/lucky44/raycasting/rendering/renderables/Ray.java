@@ -5,10 +5,10 @@ import de.lucky44.raycasting.engine.math.vec2D;
 import de.lucky44.raycasting.engine.rendering.Renderable;
 import de.lucky44.raycasting.engine.rendering.Renderer;
 import de.lucky44.raycasting.engine.rendering.TextureManager;
-import de.lucky44.raycasting.engine.scenes.Scene;
 import de.lucky44.raycasting.engine.util.Util;
+import de.lucky44.raycasting.engine.world.PolyWallGrid;
 import de.lucky44.raycasting.engine.world.World;
-import de.lucky44.raycasting.scenes.SinglePlayerScene;
+import de.lucky44.raycasting.engine.world.WorldChunk;
 
 import java.awt.*;
 
@@ -18,15 +18,20 @@ import java.awt.*;
  */
 public class Ray extends Renderable {
 
+    /**
+     * Single-texel "textures" of the flat wall colors, drawn for walls whose texture id was never loaded
+     */
+    private static final int[] HIGHLIGHT_TEXEL = {Const.WALL_HIGHLIGHT.getRGB()}, SHADOW_TEXEL = {Const.WALL_SHADOW.getRGB()};
+
     /**
      * The index of the ray
      */
     private final int index;
 
     /**
-     * hitX and hitY coordinates of the Ray
+     * hitX and hitY coordinates of the Ray (in map-cells)
      */
-    private int hitX, hitY;
+    private double hitX, hitY;
     /**
      * StartPosition of the Ray
      */
@@ -35,22 +40,10 @@ public class Ray extends Renderable {
      * The world the ray was fired in
      */
     private World world;
-    /**
-     * The scene the world lies in
-     */
-    private SinglePlayerScene parent;
     /**
      * The color of the ray
      */
     private Color color;
-    /**
-     * The rotation the ray is rendered at
-     */
-    private double renderRotation = 0;
-    /**
-     * The rotation the ray was fired at
-     */
-    private double rayRotation = 0;
     /**
      * The texture-X coordinate the ray obtained after hit
      */
@@ -65,18 +58,23 @@ public class Ray extends Renderable {
     private int renderType = 0;
 
     /**
-     * the floorX coordinate and floorYCoordinate
-     * CURRENTLY: NOT USED
+     * Scratch vector the PolyWall intersection-points are written into (preallocated, so tracing does not allocate)
+     */
+    private final vec2D polyIntersection = new vec2D(0,0);
+    /**
+     * The closest PolyWall hit of the current trace (preallocated, so tracing does not allocate)
+     */
+    private final PolyWallGrid.Hit polyHit = new PolyWallGrid.Hit();
+    /**
+     * The amount of PolyWall segments the last trace was tested against
      */
-    private double floorWallX, floorWallY;
+    private int polyWallTests = 0;
 
     /**
-     * Initializes all important references
-     * @param parent the Scene
+     * Initializes the ray
      * @param index the index of the ray
      */
-    public Ray(Scene parent, int index){
-        this.parent = (SinglePlayerScene) parent;
+    public Ray(int index){
         this.index = index;
     }
 
@@ -84,133 +82,152 @@ public class Ray extends Renderable {
      * Calculates the ray's intersections
      * @param world the world the ray is fired in
      * @param startPos the startPosition of the ray
-     * @param dirVector the vectorized direction of the ray
-     * @param rotation the rotation/angle from the player at which the ray is fired at
-     * @param playerRotation the rotation of the camera/player
+     * @param rayDirX the X direction of the ray (camera direction + camera plane * cameraX, NOT normalized)
+     * @param rayDirY the Y direction of the ray (camera direction + camera plane * cameraX, NOT normalized)
      */
-    public void calculateRay(World world, vec2D startPos, vec2D dirVector, double rotation, double playerRotation){
+    public void calculateRay(World world, vec2D startPos, double rayDirX, double rayDirY){
 
         renderType = 0;
         distanceToPlayer = -1;
+        polyWallTests = 0;
 
         if(world == null)
             return;
 
-        rayRotation = rotation;
-        renderRotation = playerRotation;
-
         this.world = world;
         this.startPos = startPos;
 
-        dirVector = dirVector.copy().normalize();
+        //everything below only works on primitives, so tracing a ray does not allocate anything
+        //since the direction is not normalized, every distance along it is already the perpendicular distance to the camera plane
+        double unitStepX = rayDirX == 0 ? Double.MAX_VALUE : Math.abs(1 / rayDirX);
+        double unitStepY = rayDirY == 0 ? Double.MAX_VALUE : Math.abs(1 / rayDirY);
+
+        int mapX = (int)startPos.x;
+        int mapY = (int)startPos.y;
+
+        if(!world.isInside(mapX, mapY))
+            return;
 
-        vec2D vRayUnitStepSize = new vec2D(
-                Math.sqrt(1 + (dirVector.y / dirVector.x) * (dirVector.y / dirVector.x)),
-                Math.sqrt(1 + (dirVector.x / dirVector.y) * (dirVector.x / dirVector.y))
-        );
+        //the DDA walks the layers of one chunk at a time and only looks the next chunk up when it crosses a chunk border
+        //the part of the edge chunks outside the map is solid, chunks outside the map (or not streamed in yet) end the ray
+        int chunkX = mapX >> WorldChunk.SHIFT;
+        int chunkY = mapY >> WorldChunk.SHIFT;
+        WorldChunk chunk = world.getChunk(chunkX, chunkY);
+        if(chunk == null)
+            return;
 
-        vec2D vMapCheck = new vec2D((int)startPos.x, (int)startPos.y);
-        vec2D vRayLength1D = vec2D.ZERO.copy();
-        vec2D vStep = vec2D.ZERO.copy();
+        short[] walls = chunk.getWallData();
+        int cellIndex = WorldChunk.cellIndex(mapX, mapY);
+        int stepX, stepY;
+        double lengthX, lengthY;
 
-        if(dirVector.x < 0){
-            vStep.x = -1;
-            vRayLength1D.x = (startPos.x - (float)vMapCheck.x) * vRayUnitStepSize.x;
+        if(rayDirX < 0){
+            stepX = -1;
+            lengthX = (startPos.x - mapX) * unitStepX;
         }
         else{
-            vStep.x = 1;
-            vRayLength1D.x = ((float)(vMapCheck.x + 1) - startPos.x) * vRayUnitStepSize.x;
+            stepX = 1;
+            lengthX = (mapX + 1 - startPos.x) * unitStepX;
         }
 
-        if(dirVector.y < 0){
-            vStep.y = -1;
-            vRayLength1D.y = (startPos.y - (float)vMapCheck.y) * vRayUnitStepSize.y;
+        if(rayDirY < 0){
+            stepY = -1;
+            lengthY = (startPos.y - mapY) * unitStepY;
         }
         else{
-            vStep.y = 1;
-            vRayLength1D.y = ((float)(vMapCheck.y + 1) - startPos.y) * vRayUnitStepSize.y;
+            stepY = 1;
+            lengthY = (mapY + 1 - startPos.y) * unitStepY;
         }
 
+        //PolyWalls are only tested in the cells the ray actually walks through
+        PolyWallGrid polyGrid = chunk.getPolyWallGrid();
+        polyHit.reset();
+        polyWallTests = polyGrid.intersect(cellIndex, startPos.x, startPos.y, rayDirX, rayDirY, polyHit);
+
         boolean bTileFound = false;
+        boolean shadow = false;
         double fDistance = 0;
-        while(!bTileFound && fDistance < Const.MAX_RAY_LENGTH){
-            if(vRayLength1D.x < vRayLength1D.y){
-                vMapCheck.x += vStep.x;
-                fDistance = vRayLength1D.x;
-                vRayLength1D.x += vRayUnitStepSize.x;
-                color = Const.WALL_HIGHLIGHT;
+        while(fDistance < Const.MAX_RAY_LENGTH){
+            //a PolyWall hit before the ray leaves the current cell is closer than anything behind it
+            if(polyHit.segment != -1 && polyHit.distance <= Math.min(lengthX, lengthY))
+                break;
+
+            if(lengthX < lengthY){
+                mapX += stepX;
+                fDistance = lengthX;
+                lengthX += unitStepX;
+                shadow = false;
             }
             else{
-                vMapCheck.y += vStep.y;
-                fDistance = vRayLength1D.y;
-                vRayLength1D.y += vRayUnitStepSize.y;
-                color = Const.WALL_SHADOW;
+                mapY += stepY;
+                fDistance = lengthY;
+                lengthY += unitStepY;
+                shadow = true;
             }
 
-            if(vMapCheck.x < 0 || vMapCheck.x > world.Width() || vMapCheck.y < 0 || vMapCheck.y > world.Height())
+            if(mapX >> WorldChunk.SHIFT != chunkX || mapY >> WorldChunk.SHIFT != chunkY){
+                chunkX = mapX >> WorldChunk.SHIFT;
+                chunkY = mapY >> WorldChunk.SHIFT;
+                chunk = world.getChunk(chunkX, chunkY);
+                //the ray left the map (or reached a chunk which is not streamed in) without hitting a wall
+                if(chunk == null)
+                    break;
+
+                walls = chunk.getWallData();
+                polyGrid = chunk.getPolyWallGrid();
+            }
+            cellIndex = WorldChunk.cellIndex(mapX, mapY);
+
+            int cell = walls[cellIndex];
+            if(cell == 0){
+                polyWallTests += polyGrid.intersect(cellIndex, startPos.x, startPos.y, rayDirX, rayDirY, polyHit);
                 continue;
+            }
 
-            if(world.getCellWall((int)vMapCheck.x, (int)vMapCheck.y) != 0){
-                wallTexID = world.getCellWall((int)vMapCheck.x, (int)vMapCheck.y)-1;
+            //SOLID_BORDER: the ray left the map without hitting a wall
+            if(cell > 0){
+                wallTexID = cell-1;
                 bTileFound = true;
+                //PolyWalls lying right on the face of the wall still win
+                polyWallTests += polyGrid.intersect(cellIndex, startPos.x, startPos.y, rayDirX, rayDirY, polyHit);
             }
+            break;
         }
+        color = shadow ? Const.WALL_SHADOW : Const.WALL_HIGHLIGHT;
 
-        vec2D vIntersection;
         if(bTileFound){
-            vIntersection = startPos.copy().add(dirVector.copy().multiply(fDistance));
-            hitX = (int)(vIntersection.x * parent.CELL_WIDTH);
-            hitY = (int)(vIntersection.y * parent.CELL_HEIGHT);
+            double intersectionX = startPos.x + rayDirX * fDistance;
+            double intersectionY = startPos.y + rayDirY * fDistance;
+            hitX = intersectionX;
+            hitY = intersectionY;
 
-            if(color == Const.WALL_HIGHLIGHT){
-                texX = (double) (hitY - (int) (vMapCheck.y * parent.CELL_HEIGHT)) / parent.CELL_HEIGHT;
-                //System.out.println("Ray texture calclulation: (" + hitX + " - " + vMapCheck.y * parent.CELL_HEIGHT + " = " + (hitY - (int)(vMapCheck.y * parent.CELL_HEIGHT)) + " ) / " + parent.CELL_HEIGHT + " = " + texX);
-            }
-            else{
-                texX = (double) (hitX - (int) (vMapCheck.x * parent.CELL_WIDTH)) / parent.CELL_WIDTH;
-                //System.out.println("Ray texture calclulation: (" + hitX + " - " + vMapCheck.x * parent.CELL_WIDTH + " = " + (hitX - (int)(vMapCheck.x * parent.CELL_WIDTH)) + " ) / " + parent.CELL_WIDTH + " = " + texX);
-            }
-            texX = Math.abs(texX);
+            texX = shadow ? intersectionX - mapX : intersectionY - mapY;
             distanceToPlayer = fDistance;
         }
 
-        if(color == Const.WALL_SHADOW && dirVector.x > 0){
-            floorWallX = vMapCheck.x;
-            floorWallY = vMapCheck.y + hitX;
-        }
-        else if(color == Const.WALL_SHADOW && dirVector.x < 0){
-            floorWallX = vMapCheck.x + 1;
-            floorWallY = vMapCheck.y + texX;
-        }
-        else if(color == Const.WALL_HIGHLIGHT && dirVector.y > 0){
-            floorWallX = vMapCheck.x + texX;
-            floorWallY = vMapCheck.y;
-        }
-        else if(color == Const.WALL_HIGHLIGHT && dirVector.y < 0){
-            floorWallX = vMapCheck.x + texX;
-            floorWallY = vMapCheck.y + 1;
+        if(polyHit.segment != -1 && (!bTileFound || polyHit.distance <= fDistance)){
+            //the hit can lie in an earlier chunk than the one the ray ended in, so the wall comes from the hit itself
+            PolyWall wall = polyHit.wall;
+            polyIntersection.set(polyHit.point);
+
+            texX = wall.getTextureXCoordinate(polyIntersection, polyHit.segmentIndex);
+            hitX = polyIntersection.x;
+            hitY = polyIntersection.y;
+            distanceToPlayer = polyHit.distance;
+            renderType = 1;
+            wallTexID = wall.getTexture();
         }
+    }
 
-        for(PolyWall wall : world.getPolyWalls()){
-            vec2D localIntersection = new vec2D(0,0);
-            vec2D lineSegment = wall.intersects(startPos.x, startPos.y, dirVector.x, dirVector.y, localIntersection);
-            if(lineSegment.x != -1 && lineSegment.y != -1){
-                double polyWallDist = localIntersection.distance(startPos);
-                if(polyWallDist <= fDistance){
-                    //System.out.println("Found intersection with PolyWall at " + localIntersection);
-                    texX = wall.getTextureXCoordinate(localIntersection, lineSegment, parent);
-                    hitX = (int)(localIntersection.x * parent.CELL_WIDTH);
-                    hitY = (int)(localIntersection.y * parent.CELL_HEIGHT);
-                    distanceToPlayer = polyWallDist;
-                    renderType = 1;
-                    wallTexID = wall.getTexture();
-                }
-            }
-        }
+    /**
+     * @return the amount of PolyWall segments the last trace was tested against
+     */
+    public int getPolyWallTests(){
+        return polyWallTests;
     }
 
     /**
-     * Renders the calculated ray data to the screen in one textureStripe
+     * Renders the calculated ray data to the screen as one texture column
      * @param r the Renderer which called this method
      * @param textureManager the TextureManager Instance which cached all the textures
      */
@@ -230,7 +247,7 @@ public class Ray extends Renderable {
 
         distanceToPlayer = distanceToPlayer*Math.cos(ca);
 
-        int height = (int)(Const.HEIGHT/20 * (world.Height() / distanceToPlayer));
+        int height = (int)(Const.WALL_SCALE / distanceToPlayer);
         int xPos = (Const.WIDTH / 2) + index * Const.RAYCASTER_LINE_WIDTH;
         int yPos = Const.HEIGHT/2 - height/2;
 
@@ -239,20 +256,13 @@ public class Ray extends Renderable {
     }
 
     /**
-     * Draws the textureStripe of the hit coordinates and wall to the renderers buffer
+     * Draws the texture column of the hit coordinates and wall to the renderers buffer
      * @param r the renderer
      * @param tex the TextureManager which has all the cached textures
      */
     private void drawTexWall(Renderer r, TextureManager tex){
-        double ca = renderRotation - rayRotation;
-        if(ca < 0)
-            ca += 2 * Math.PI;
-        if(ca > 2*Math.PI)
-            ca -= 2*Math.PI;
-
-        distanceToPlayer = distanceToPlayer*Math.cos(ca);
-
-        int height = (int)(Const.HEIGHT/20 * (world.Height() / distanceToPlayer));
+        //distanceToPlayer already is the perpendicular distance, so there is no fisheye to correct
+        int height = (int)(Const.WALL_SCALE / distanceToPlayer);
 
         if(height >  (4d * Const.VIEWPORT_HEIGHT))
             height = (int)(4d * Const.VIEWPORT_HEIGHT);
@@ -263,33 +273,39 @@ public class Ray extends Renderable {
         int xPos = (Const.WIDTH / 2) + index * Const.RAYCASTER_LINE_WIDTH;
         int yPos = Const.HEIGHT/2 - height/2;
 
-        for(int x = 0; x < Const.RAYCASTER_LINE_WIDTH; x++){
-            int[] wallColors = tex.getTextureStripe(wallTexID, texX, height, renderType == 1 ? 0 : color == Const.WALL_HIGHLIGHT ? 0 : 1);
-            int[] fcColors = tex.getFloorStripe(distanceToPlayer, floorWallX, floorWallY, Const.VIEWPORT_HEIGHT - (yPos + height), startPos.x, startPos.y, world);
-            //System.out.println("Drawing " + Const.RAYCASTER_LINE_WIDTH + " width * " + colors.length + " height pixels");
-            for(int y = 0; y < wallColors.length; y++){
-                r.drawPixel(xPos+x, yPos + y, wallColors[y], distanceToPlayer);
+        //a data.m or PolyWall referencing more textures than were loaded gets the flat wall color instead
+        if(wallTexID < 0 || wallTexID >= tex.getTextureCount()){
+            int[] flat = color == Const.WALL_HIGHLIGHT ? HIGHLIGHT_TEXEL : SHADOW_TEXEL;
+            for(int x = 0; x < Const.RAYCASTER_LINE_WIDTH; x++){
+                r.drawTextureColumn(xPos + x, yPos, height, flat, 0, 1, distanceToPlayer);
             }
+            return;
+        }
 
-             /* Floors be brokey
-            for(int y = 0; y < fcColors.length; y++) {
-                r.drawPixel(xPos+x, yPos + height + y, fcColors[y]);
-            }
-              */
+        int column = tex.getTextureColumn(wallTexID, texX);
+
+        //side-shading and fog are baked into the texture variants
+        int side = renderType != 1 && color != Const.WALL_HIGHLIGHT ? 1 : 0;
+        int[] texels = tex.getShadedTexels(wallTexID, side, TextureManager.getShadeLevel(distanceToPlayer));
+        int texHeight = tex.getTextureHeight(wallTexID);
+
+        for(int x = 0; x < Const.RAYCASTER_LINE_WIDTH; x++){
+            r.drawTextureColumn(xPos + x, yPos, height, texels, column, texHeight, distanceToPlayer);
         }
     }
 
     /**
      * Renders the Ray as Debug Info to the map
      * @param g the Graphics2D instance to draw on
+     * @param cellWidth the width of one map-cell on the DEBUG-map
+     * @param cellHeight the height of one map-cell on the DEBUG-map
      */
-    @Override
-    public void renderToMap(Graphics2D g){
+    public void renderToMap(Graphics2D g, int cellWidth, int cellHeight){
 
         if(distanceToPlayer == -1)
             return;
 
         g.setPaint(Color.green);
-        g.drawLine((int)(startPos.x * parent.CELL_WIDTH), (int)(startPos.y * parent.CELL_HEIGHT), hitX, hitY);
+        g.drawLine((int)(startPos.x * cellWidth), (int)(startPos.y * cellHeight), (int)(hitX * cellWidth), (int)(hitY * cellHeight));
     }
 }
@@ -2,13 +2,11 @@ package de.lucky44.raycasting.rendering.renderables;
 
 import de.lucky44.raycasting.engine.Const;
 import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.rendering.Camera;
 import de.lucky44.raycasting.engine.rendering.Renderable;
 import de.lucky44.raycasting.engine.rendering.Renderer;
+import de.lucky44.raycasting.engine.rendering.SpriteFrame;
 import de.lucky44.raycasting.engine.rendering.TextureManager;
-import de.lucky44.raycasting.scenes.SinglePlayerScene;
-
-import java.awt.*;
-import java.awt.image.BufferedImage;
 
 /**
  * A normal Sprite
@@ -41,7 +39,7 @@ public class Sprite extends Renderable {
     /**
      * the Sprite-texture
      */
-    private BufferedImage sprite;
+    private SpriteFrame sprite;
 
     /**
      * Initializes the Sprite Instance
@@ -49,7 +47,7 @@ public class Sprite extends Renderable {
      * @param size the size
      * @param yOffset the yOffset
      */
-    public Sprite(BufferedImage sprite, vec2D size, int yOffset){
+    public Sprite(SpriteFrame sprite, vec2D size, int yOffset){
         this.sprite = sprite;
         this.originalSize = size;
         this.yOffset = yOffset;
@@ -58,6 +56,13 @@ public class Sprite extends Renderable {
         screenPos = new vec2D(0,0);
     }
 
+    /**
+     * @return true if the sprite lay (at least partly) in front of the camera the last time it was calculated
+     */
+    public boolean isOnScreen(){
+        return onScreen;
+    }
+
     /**
      * Renders the Sprite to the screen
      * @param r the Renderer which called this method
@@ -66,7 +71,7 @@ public class Sprite extends Renderable {
     @Override
     public void render(Renderer r, TextureManager textureManager) {
 
-        if(!onScreen)
+        if(!onScreen || sprite == null)
             return;
 
         if(screenPos.x - Const.VIEWPORT_WIDTH < 0 || screenPos.x - Const.VIEWPORT_WIDTH > Const.VIEWPORT_WIDTH)
@@ -84,54 +89,32 @@ public class Sprite extends Renderable {
     /**
      * Calculates all the data the Sprite needs to be rendered to the Screen
      * @param entityPos the position of the Entity/Sprite
-     * @param startPos the Player/Camera Position
-     * @param viewDirection the Direction the Player/Camera is facing (vectorized)
-     * @param g the Graphics2D instance to draw on
-     * @param parent the Scene
-     * @param rotation the rotation of the Player
+     * @param camera the Camera the Sprite is projected with
      */
-    public void calculateSprite(vec2D entityPos, vec2D startPos, vec2D viewDirection, Graphics2D g, SinglePlayerScene parent, double rotation){
-
-        //first we must determine if the sprite is even on-screen
-
-        onScreen = true;
-
-        double step = (double) (Const.FOV) / Const.RAYCASTER_RESOLUTION;
-        double rAngle = rotation - Const.DR * (step * ((double) Const.RAYCASTER_RESOLUTION / 2));
-        vec2D dirVector = new vec2D(Math.cos(rAngle), Math.sin(rAngle));
-        dirVector.normalize();
+    public void calculateSprite(vec2D entityPos, Camera camera){
 
-        vec2D direction = entityPos.copy().subtract(startPos);
-        distanceToPlayer = direction.magnitude();
-
-        /*
-        g.setPaint(Color.green);
-        g.drawLine((int) (startPos.x * parent.CELL_WIDTH), (int) (startPos.y * parent.CELL_HEIGHT), (int) ((startPos.x + dirVector.x) * parent.CELL_WIDTH), (int) ((startPos.y + dirVector.y) * parent.CELL_HEIGHT));
-        g.setPaint(Color.ORANGE);
-        g.drawLine((int)(startPos.x * parent.CELL_WIDTH), (int)(startPos.y * parent.CELL_HEIGHT), (int)((startPos.x + direction.x) * parent.CELL_WIDTH), (int) ((startPos.y + direction.y) * parent.CELL_HEIGHT));
-        */
+        //transform the sprite into camera space, this gives us its perpendicular depth (same as the walls) and its cameraX
+        double relX = entityPos.x - camera.posX;
+        double relY = entityPos.y - camera.posY;
 
-        //calculate angle between the players view direction and the angle from the player to the sprite
-        direction.normalize();
-        double angle = dirVector.angleBetween(direction);
+        distanceToPlayer = camera.depth(relX, relY);
 
-        double dot = dirVector.x * -direction.y + dirVector.y * direction.x;
-
-        //if the previously calculated angle is not within the FOV, don't draw the sprite
-        if(dot > 0 || Math.toDegrees(angle) > (double) (Const.FOV)){
+        //behind the camera
+        if(distanceToPlayer <= 0){
             onScreen = false;
             return;
         }
 
-        screenSize.set(originalSize.copy().divide(distanceToPlayer/ parent.MAP_CELL_RESOLUTION));
-
-        double FOVDiv = Math.toDegrees(angle) / (Const.FOV);
+        //same projection as the walls, independent of the size of the map
+        screenSize.x = originalSize.x / (distanceToPlayer / Const.SPRITE_SCALE);
+        screenSize.y = originalSize.y / (distanceToPlayer / Const.SPRITE_SCALE);
 
-        //with the previously calculated angle we can also get the Sprites Screen-X position (generalized: by dividing the angle with our FOV we can get a value from 0 to one)
-        screenPos.x = Const.VIEWPORT_WIDTH + (Const.VIEWPORT_WIDTH * FOVDiv) - (screenSize.x/2);
+        //cameraX goes from -1 (left edge) to 1 (right edge), so it maps straight onto the viewport
+        double cameraX = camera.cameraX(relX, relY);
+        screenPos.x = Const.VIEWPORT_WIDTH + Const.VIEWPORT_WIDTH * (cameraX + 1) / 2 - (screenSize.x/2);
         screenPos.y = (double) Const.HEIGHT / 2 - screenSize.y / 2 + screenSize.y / 10;
 
-        //System.out.println("Angle: " + angle + " toDEG: " + Math.toDegrees(angle) + " DOT: " + dot + "ScreenPos: " + screenPos);
+        onScreen = screenPos.x + screenSize.x >= Const.VIEWPORT_WIDTH && screenPos.x <= Const.WIDTH;
 
         /*
         OLD
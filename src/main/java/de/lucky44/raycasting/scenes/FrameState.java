@@ -0,0 +1,67 @@
+package de.lucky44.raycasting.scenes;
+
+import de.lucky44.raycasting.engine.entities.Entity;
+import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.world.World;
+
+/**
+ * Everything the render thread needs from one simulation tick of the SinglePlayerScene
+ * Gets filled by the simulation thread and handed over through a TripleBuffer, so the render thread never reads state which is being mutated
+ * @author Nick Balischewski
+ */
+public class FrameState {
+
+    /**
+     * The world of this tick
+     */
+    public World world;
+    /**
+     * Cell width and height of the DEBUG-map
+     */
+    public int cellWidth, cellHeight;
+    /**
+     * The Map-Cell Resolution
+     */
+    public int mapCellResolution;
+
+    /**
+     * Position of the Player
+     */
+    public final vec2D playerPos = new vec2D(0,0);
+    /**
+     * Rotation of the player
+     */
+    public double playerRotation;
+    /**
+     * Player's rotation but vectorized
+     */
+    public final vec2D playerDelta = new vec2D(0,0);
+
+    /**
+     * The entities which were loaded during this tick (the loaded entities change while the world is streamed)
+     */
+    public Entity[] entities = new Entity[0];
+    /**
+     * The positions of all entities (same order as entities)
+     */
+    public vec2D[] entityPositions = new vec2D[0];
+
+    /**
+     * Copies the positions of all entities, the array only gets reallocated if the amount of entities changed
+     * @param world the world the entities are in
+     */
+    public void copyEntities(World world){
+        entities = world.getEntities();
+
+        if(entityPositions.length != entities.length){
+            entityPositions = new vec2D[entities.length];
+            for(int i = 0; i < entityPositions.length; i++){
+                entityPositions[i] = new vec2D(0,0);
+            }
+        }
+
+        for(int i = 0; i < entityPositions.length; i++){
+            entityPositions[i].set(entities[i].position);
+        }
+    }
+}
@@ -1,18 +1,28 @@
 package de.lucky44.raycasting.scenes;
 
+import de.lucky44.raycasting.engine.diagnostics.FrameEvent;
 import de.lucky44.raycasting.engine.entities.Entity;
 import de.lucky44.raycasting.engine.input.Input;
 import de.lucky44.raycasting.engine.math.vec2D;
 import de.lucky44.raycasting.engine.scenes.Scene;
+import de.lucky44.raycasting.engine.time.FrameProfiler;
 import de.lucky44.raycasting.engine.time.Time;
 import de.lucky44.raycasting.engine.Const;
 import de.lucky44.raycasting.engine.world.World;
+import de.lucky44.raycasting.rendering.MinimapRenderer;
 import de.lucky44.raycasting.rendering.RaycasterRenderer;
 import de.lucky44.raycasting.rendering.renderables.PolyWall;
+import de.lucky44.raycasting.engine.util.TripleBuffer;
 import lombok.Getter;
 
 import java.awt.*;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Main-Scene class for this Game
@@ -23,6 +33,7 @@ public class SinglePlayerScene extends Scene {
     /**
      * The world
      */
+    @Getter
     private World world;
     /**
      * Cell width and height
@@ -53,11 +64,15 @@ public class SinglePlayerScene extends Scene {
     /**
      * DEBUG_MODE, used for different debug menus
      */
-    private int DEBUG_MODE = 0;
+    private volatile int DEBUG_MODE = 0;
     /**
      * Should the depth Buffer be drawn
      */
-    private boolean depthBufferDraw = false;
+    private volatile boolean depthBufferDraw = false;
+    /**
+     * Should the frame profile be written into a csv file after the next frame (key 9)
+     */
+    private volatile boolean dumpProfile = false;
     /**
      * The path of the worldData
      */
@@ -66,7 +81,25 @@ public class SinglePlayerScene extends Scene {
     /**
      * The Renderer
      */
-    private final RaycasterRenderer renderer = new RaycasterRenderer(this);
+    private final RaycasterRenderer renderer = new RaycasterRenderer();
+    /**
+     * Draws the DEBUG-map
+     */
+    private final MinimapRenderer minimap = new MinimapRenderer();
+
+    //Threading
+    /**
+     * The state of the newest simulation tick, handed from the simulation thread to the render thread
+     */
+    private final TripleBuffer<FrameState> frames = new TripleBuffer<>(FrameState::new);
+    /**
+     * A world which was loaded outside the simulation thread and is waiting to be switched to
+     */
+    private final AtomicReference<World> pendingWorld = new AtomicReference<>();
+    /**
+     * Is a world being loaded on the World-Loader thread right now (see reloadWorld)
+     */
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
 
     /**
      * Initializes the Scene
@@ -74,6 +107,7 @@ public class SinglePlayerScene extends Scene {
      */
     public SinglePlayerScene(String worldPath){
         this.worldPath = worldPath;
+        renderer.setProfiler(Time.PROFILER);
     }
 
     /**
@@ -82,45 +116,134 @@ public class SinglePlayerScene extends Scene {
     @Override
     public void OnLoad() {
         switchWorld(new World(worldPath));
+        Publish();
     }
 
     /**
      * Updates the scene and playerInput
+     * (Simulation thread)
      */
     @Override
     public void Update() {
+        World next = pendingWorld.getAndSet(null);
+        if(next != null)
+            switchWorld(next);
+
         playerInput();
+
+        if(world != null)
+            world.streamAround(playerPos);
     }
 
     /**
-     * Draws/renders the Scene + DEBUG-Draw
+     * Hands the state of the last Update over to the render thread
+     * (Simulation thread)
+     */
+    @Override
+    public void Publish(){
+        if(world == null)
+            return;
+
+        FrameState frame = frames.back();
+        frame.world = world;
+        frame.cellWidth = CELL_WIDTH;
+        frame.cellHeight = CELL_HEIGHT;
+        frame.mapCellResolution = MAP_CELL_RESOLUTION;
+        frame.playerPos.set(playerPos);
+        frame.playerRotation = playerRotation;
+        frame.playerDelta.set(playerDelta);
+        frame.copyEntities(world);
+        frames.publish();
+    }
+
+    /**
+     * Draws/renders the newest published state of the Scene + DEBUG-Draw
+     * (Render thread)
      * @param g the Graphics2D instance to draw on
      */
     @Override
     public void Draw(Graphics2D g){
 
-        if(world == null)
+        FrameState frame = frames.acquire();
+        if(frame.world == null)
             return;
 
-        renderer.flushBuffers();
+        if(renderer.getWorld() != frame.world)
+            renderer.setWorld(frame.world);
+        frame.world.applyPendingChanges();
 
-        //Map Rendering
-        renderMap(g);
-        renderEntities(g);
-        renderPlayer(g);
+        FrameEvent event = new FrameEvent();
+        event.begin();
 
-        renderer.flushRenderCache();
+        FrameProfiler profiler = Time.PROFILER;
+        long time = System.nanoTime();
 
-        renderer.rayCast(g, playerPos, playerRotation, DEBUG_MODE);
-        renderer.calculateEntities(g, playerPos, playerRotation, playerDelta);
+        boolean drawDepth = depthBufferDraw;
+        renderer.setRecordDepth(drawDepth);
+        renderer.flushBuffers();
+        renderer.flushRenderCache();
+        time = profiler.record(FrameProfiler.Stage.FLUSH, time);
 
-        if(depthBufferDraw)
+        //Map Rendering
+        renderMap(g, frame);
+        Graphics2D mapGraphics = minimap.createOverlay(g);
+        renderEntities(mapGraphics, frame);
+        renderPlayer(mapGraphics, frame);
+        time = profiler.record(FrameProfiler.Stage.MAP, time);
+
+        renderer.updateCamera(frame.playerPos, frame.playerRotation);
+        renderer.rayCast();
+        time = profiler.record(FrameProfiler.Stage.RAYCAST, time);
+
+        renderer.calculateEntities(frame.entities, frame.entityPositions);
+        time = profiler.record(FrameProfiler.Stage.ENTITIES, time);
+
+        if(DEBUG_MODE == KeyEvent.VK_4)
+            renderer.renderRaysToMap(mapGraphics, frame.cellWidth, frame.cellHeight);
+        mapGraphics.dispose();
+        profiler.record(FrameProfiler.Stage.MAP, time);
+
+        //walls, sprites and present are recorded by the renderer
+        if(drawDepth)
             renderer.renderDepthBuffer(g);
         else
             renderer.render(g);
 
+        time = System.nanoTime();
         if(DEBUG_MODE != 0)
-            renderDebugData(g);
+            renderDebugData(g, frame);
+        profiler.record(FrameProfiler.Stage.MAP, time);
+
+        if(dumpProfile){
+            dumpProfile = false;
+            writeProfile(profiler);
+        }
+
+        if(event.shouldCommit()){
+            event.world = frame.world.getName();
+            event.entities = frame.entities.length;
+            event.entitiesOnScreen = renderer.getSpritesOnScreen();
+            event.loadedChunks = frame.world.getLoadedChunkCount();
+            event.debugMode = DEBUG_MODE;
+            event.parallel = renderer.isParallel();
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the statistics of the frame profiler into a csv file in the working directory
+     * @param profiler the profiler
+     */
+    private void writeProfile(FrameProfiler profiler){
+        File file = new File("profile-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".csv");
+        try{
+            profiler.writeCsv(file);
+            System.out.println("Wrote frame profile to " + file.getAbsolutePath());
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not write frame profile to " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
     }
 
     //region rendering
@@ -128,89 +251,87 @@ public class SinglePlayerScene extends Scene {
     /**
      * Renders the Player to the DEBUG-Map
      * @param g the Graphics2D Instance to draw on
+     * @param frame the state which is drawn
      */
-    private void renderPlayer(Graphics2D g){
+    private void renderPlayer(Graphics2D g, FrameState frame){
 
-        if(world == null)
+        if(frame.world == null)
             return;
 
-        int playerWorldPosX = (int)(playerPos.x * CELL_WIDTH);
-        int playerWorldPosY = (int)(playerPos.y * CELL_HEIGHT);
+        int playerWorldPosX = (int)(frame.playerPos.x * frame.cellWidth);
+        int playerWorldPosY = (int)(frame.playerPos.y * frame.cellHeight);
 
         g.setPaint(Color.RED);
-        g.fillOval(playerWorldPosX - (CELL_WIDTH/4)/2, playerWorldPosY - (CELL_HEIGHT/4)/2, CELL_WIDTH/4, CELL_HEIGHT/4);
-        g.drawLine(playerWorldPosX, playerWorldPosY, playerWorldPosX + (int)(playerDelta.x * CELL_WIDTH/2), playerWorldPosY + (int)(playerDelta.y * CELL_HEIGHT/2));
+        g.fillOval(playerWorldPosX - (frame.cellWidth/4)/2, playerWorldPosY - (frame.cellHeight/4)/2, frame.cellWidth/4, frame.cellHeight/4);
+        g.drawLine(playerWorldPosX, playerWorldPosY, playerWorldPosX + (int)(frame.playerDelta.x * frame.cellWidth/2), playerWorldPosY + (int)(frame.playerDelta.y * frame.cellHeight/2));
     }
 
     /**
      * Renders the Entities to the DEBUG-Map
      * @param g the Graphics2D Instance to draw on
+     * @param frame the state which is drawn
      */
-    private void renderEntities(Graphics2D g){
+    private void renderEntities(Graphics2D g, FrameState frame){
 
-        if(world == null)
+        if(frame.world == null)
             return;
 
-        int entityWidth = (CELL_WIDTH/5);
-        int entityHeight = (CELL_HEIGHT/5);
+        int entityWidth = (frame.cellWidth/5);
+        int entityHeight = (frame.cellHeight/5);
 
-        for(Entity e : world.getEntities()){
-            int entityWorldPosX = (int)(e.position.x * CELL_WIDTH) + entityWidth/2;
-            int entityWorldPosY = (int)(e.position.y * CELL_HEIGHT) + entityHeight/2;
+        Entity[] entities = frame.entities;
+        for(int i = 0; i < entities.length; i++){
+            Entity e = entities[i];
+            vec2D position = frame.entityPositions[i];
+            int entityWorldPosX = (int)(position.x * frame.cellWidth) + entityWidth/2;
+            int entityWorldPosY = (int)(position.y * frame.cellHeight) + entityHeight/2;
 
             g.setPaint(Color.CYAN);
             g.fillOval(entityWorldPosX - entityWidth/2, entityWorldPosY - entityHeight/2, entityWidth, entityHeight);
 
             if(DEBUG_MODE == KeyEvent.VK_3){
-                g.drawString(e.getEntityName(), (int)(e.position.x*CELL_WIDTH - e.getEntityName().length()*2), (int)(e.position.y*CELL_HEIGHT - e.getEntityName().length()*1.5));
-                g.drawString(e.getClass().getSimpleName(), (int)(e.position.x*CELL_WIDTH - e.getEntityName().length()*2), (int)(e.position.y*CELL_HEIGHT - e.getEntityName().length()/2));
+                g.drawString(e.getEntityName(), (int)(position.x*frame.cellWidth - e.getEntityName().length()*2), (int)(position.y*frame.cellHeight - e.getEntityName().length()*1.5));
+                g.drawString(e.getClass().getSimpleName(), (int)(position.x*frame.cellWidth - e.getEntityName().length()*2), (int)(position.y*frame.cellHeight - e.getEntityName().length()/2));
             }
             //g.drawLine(entityWorldPosX, entityWorldPosY, entityWorldPosX + (int)(playerDelta.x * CELL_WIDTH/2), entityWorldPosY + (int)(playerDelta.y * CELL_HEIGHT/2));
         }
     }
 
     /**
-     * Renders the DEBUG-Map
+     * Renders the DEBUG-Map (the wall grid and PolyWalls are cached by the MinimapRenderer and only redrawn when the world changed)
      * @param g the Graphics2D Instance to draw on
+     * @param frame the state which is drawn
      */
-    private void renderMap(Graphics2D g){
+    private void renderMap(Graphics2D g, FrameState frame){
 
-        if(world == null)
+        if(frame.world == null)
             return;
 
-        for(int x = 0; x < MAP_CELL_RESOLUTION; x++) {
-            for(int y = 0; y < MAP_CELL_RESOLUTION; y++){
-
-                g.setPaint(Color.white);
-                if(world.getCellWall(x,y) != 0)
-                    g.setPaint(Color.black);
-                if(DEBUG_MODE != 0 && (int)playerPos.x == x && (int)playerPos.y == y)
-                    g.setPaint(Color.green);
-
-                g.fillRect(CELL_WIDTH * x, CELL_HEIGHT * y, CELL_WIDTH, CELL_HEIGHT);
+        minimap.update(frame.world, frame.playerPos, frame.cellWidth, frame.cellHeight);
+        minimap.drawMap(g);
 
-                g.setPaint(Color.gray);
-                Rectangle r = new Rectangle(CELL_WIDTH * x, CELL_HEIGHT * y, CELL_WIDTH, CELL_HEIGHT);
-                g.setStroke(new BasicStroke(1));
-                g.draw(r);
-            }
-        }
-
-        for(PolyWall p : world.getPolyWalls()){
-            if(p == null)
-                continue;
+        if(DEBUG_MODE == 0)
+            return;
 
-            p.renderToMap(g, this);
-        }
+        //the cell of the player changes every few steps, so it is drawn on top instead of being cached
+        Graphics2D overlay = minimap.createOverlay(g);
+        int cellX = (int)frame.playerPos.x * frame.cellWidth;
+        int cellY = (int)frame.playerPos.y * frame.cellHeight;
+        overlay.setPaint(Color.green);
+        overlay.fillRect(cellX, cellY, frame.cellWidth, frame.cellHeight);
+        overlay.setPaint(Color.gray);
+        overlay.drawRect(cellX, cellY, frame.cellWidth, frame.cellHeight);
+        overlay.dispose();
     }
 
     /**
      * Renders the different DEBUG-menus
      * @param g the Graphics2D Instance to draw on
+     * @param frame the state which is drawn
      */
-    private void renderDebugData(Graphics2D g){
+    private void renderDebugData(Graphics2D g, FrameState frame){
         g.setPaint(new Color(.6f,.6f,.6f, .85f));
-        g.fillRect(0,0,CELL_WIDTH * 10,Const.HEIGHT);
+        g.fillRect(0,0,frame.cellWidth * 10,Const.HEIGHT);
 
         g.setPaint(Color.WHITE);
 
@@ -230,27 +351,29 @@ public class SinglePlayerScene extends Scene {
             }
             case(KeyEvent.VK_2) -> {
                 g.drawString("--== PLAYER INFO ==--", 8, 75);
-                g.drawString("PlayerPos: " + playerPos, 8, 90);
-                g.drawString("PlayerGridPos: " + "(" + (int)playerPos.x + "," + (int)playerPos.y + ")", 8, 105);
-                g.drawString("PlayerRot: " + playerRotation, 8, 120);
-                g.drawString("PlayerDelta: " + playerDelta, 8, 135);
+                g.drawString("PlayerPos: " + frame.playerPos, 8, 90);
+                g.drawString("PlayerGridPos: " + "(" + (int)frame.playerPos.x + "," + (int)frame.playerPos.y + ")", 8, 105);
+                g.drawString("PlayerRot: " + frame.playerRotation, 8, 120);
+                g.drawString("PlayerDelta: " + frame.playerDelta, 8, 135);
             }
             case(KeyEvent.VK_3) -> {
                 g.drawString("--== MAP INFO ==--", 8, 75);
-                if(world == null){
+                if(frame.world == null){
                     g.setPaint(Color.RED);
                     g.drawString("! NO MAP LOADED ! PRESS F8 TO RELOAD", 8, 90);
                     return;
                 }
-                g.drawString("Map:" + world.getName(), 8, 90);
-                g.drawString("MapSize: " + world.Width() + " x " + world.Height(), 8, 105);
-                g.drawString("Entities:" + world.getEntities().length, 8, 120);
-
-                int startY = 150;
-                if(world.getEntities().length > 0){
+                g.drawString("Map:" + frame.world.getName(), 8, 90);
+                g.drawString("MapSize: " + frame.world.Width() + " x " + frame.world.Height(), 8, 105);
+                g.drawString("Entities:" + frame.entities.length, 8, 120);
+                g.drawString(String.format("Chunks: %d / %d loaded (%.1f MB)", frame.world.getLoadedChunkCount(), frame.world.getChunkCount(),
+                        frame.world.getLoadedChunkMemory() / (1024d * 1024d)), 8, 135);
+
+                int startY = 165;
+                if(frame.entities.length > 0){
                     g.drawString("-- Entities --", 8 , startY);
                     startY += 15;
-                    for(Entity e : world.getEntities()){
+                    for(Entity e : frame.entities){
                         g.drawString(e.getEntityName(), 16, startY);
                         startY += 15;
                         for(String s : e.debugInfo()){
@@ -260,15 +383,16 @@ public class SinglePlayerScene extends Scene {
                     }
                 }
 
-                if(world.getPolyWalls().length > 0){
+                PolyWall[] polyWalls = frame.world.getPolyWalls();
+                if(polyWalls.length > 0){
                     g.drawString("-- Poly Walls --", 8, startY);
                     startY += 15;
-                    g.drawString("Num: " + world.getPolyWalls().length, 8, startY);
+                    g.drawString("Num: " + polyWalls.length, 8, startY);
                     startY += 15;
-                    for(int i = 0; i < world.getPolyWalls().length; i++){
+                    for(int i = 0; i < polyWalls.length; i++){
                         g.drawString("pw" + i + ":", 16, startY);
                         startY += 15;
-                        for(String s : world.getPolyWalls()[i].debugInfo()){
+                        for(String s : polyWalls[i].debugInfo()){
                             g.drawString(s, 24, startY);
                             startY += 15;
                         }
@@ -278,9 +402,21 @@ public class SinglePlayerScene extends Scene {
             case(KeyEvent.VK_4) -> {
                 g.drawString("--== RENDERER INFO ==--", 8, 75);
                 g.drawString("Rays: " + Const.RAYCASTER_RESOLUTION, 8, 90);
-                g.drawString("Average Ray-Time: " + renderer.avgPerformance, 8 ,105);
-                g.drawString("DepthBufferDraw: " + depthBufferDraw, 8, 120);
-                g.drawString("Interpolated FPS: " + Time.INTERPOLATED_FPS, 8, 135);
+                g.drawString("DepthBufferDraw: " + depthBufferDraw, 8, 105);
+                g.drawString("Interpolated FPS: " + Time.INTERPOLATED_FPS, 8, 120);
+                g.drawString("ParallelRaycasting: " + renderer.isParallel(), 8, 135);
+                g.drawString(String.format("Wakeup-Jitter: %.1f us avg / %.1f us max", Time.JITTER_AVG, Time.JITTER_MAX), 8, 150);
+
+                g.drawString("--== FRAME PROFILE (ms, 9 = csv) ==--", 8, 180);
+                Font font = g.getFont();
+                g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, font.getSize()));
+                g.drawString(String.format("%-9s %7s %7s %7s", "stage", "p50", "p99", "max"), 8, 195);
+                int startY = 210;
+                for(FrameProfiler.Stage stage : FrameProfiler.Stage.values()){
+                    g.drawString(Time.PROFILER.describe(stage), 8, startY);
+                    startY += 15;
+                }
+                g.setFont(font);
             }
         }
     }
@@ -289,21 +425,61 @@ public class SinglePlayerScene extends Scene {
     //region outside control
 
     /**
-     * Switches the currently loaded world
+     * Loads the world again on the World-Loader thread, so input and rendering keep going while it loads
+     * It is switched to between two simulation ticks, further calls are ignored until it finished loading
+     */
+    private void reloadWorld(){
+        if(!reloading.compareAndSet(false, true))
+            return;
+
+        Thread loader = new Thread(() -> {
+            try{
+                loadPendingWorld();
+            }
+            finally{
+                reloading.set(false);
+            }
+        }, "World-Loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * Loads the world from worldPath and hands it to the simulation thread (see pendingWorld)
+     * If it couldn't be loaded the error gets logged and the current world is kept
+     */
+    private void loadPendingWorld(){
+        try{
+            pendingWorld.set(new World(worldPath));
+        }
+        catch(RuntimeException e){
+            System.out.println("[ERROR] Could not reload world " + worldPath + ", keeping the current one");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Switches the currently loaded world, the render thread picks it up with the next published state
+     * (Simulation thread, use pendingWorld from anywhere else)
      * @param world the word which is meant to be loaded into the scene
      */
     private void switchWorld(World world){
         System.out.println("Switching to new World...");
+        Time.PROFILER.requestReset();
+        if(this.world != null)
+            this.world.stopWatching();
         this.world = world;
 
-        MAP_CELL_RESOLUTION = (world.Width() + world.Height())/2;
-        CELL_WIDTH = Math.min(Const.WIDTH, Const.HEIGHT) / MAP_CELL_RESOLUTION-2;
-        CELL_HEIGHT = Math.min(Const.WIDTH, Const.HEIGHT) / MAP_CELL_RESOLUTION-2;
+        //files which can't be reloaded on their own (e.g. data.m) load the whole world again
+        if(Const.HOT_RELOAD)
+            world.watch(this::loadPendingWorld);
+
+        MAP_CELL_RESOLUTION = world.getCellResolution();
+        CELL_WIDTH = Math.min(Const.WIDTH, Const.HEIGHT) / MinimapRenderer.getViewCells(world)-2;
+        CELL_HEIGHT = Math.min(Const.WIDTH, Const.HEIGHT) / MinimapRenderer.getViewCells(world)-2;
 
         playerPos = world.getPlayerStartPos().copy();
         playerRotation = world.getStartRotation();
-
-        renderer.setWorld(world);
     }
     //endregion
 
@@ -355,11 +531,18 @@ public class SinglePlayerScene extends Scene {
         int keyCode = e.getKeyCode();
 
         if(keyCode == KeyEvent.VK_8){
-            switchWorld(new World(worldPath));
+            reloadWorld();
         }
         else if(keyCode == KeyEvent.VK_7){
             depthBufferDraw = !depthBufferDraw;
         }
+        else if(keyCode == KeyEvent.VK_6){
+            renderer.setParallel(!renderer.isParallel());
+        }
+        else if(keyCode == KeyEvent.VK_9){
+            //written by the render thread, the profiler is not thread-safe
+            dumpProfile = true;
+        }
 
         if(keyCode < KeyEvent.VK_1 || keyCode > KeyEvent.VK_4)
             return;
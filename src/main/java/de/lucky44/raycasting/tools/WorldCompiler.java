@@ -0,0 +1,57 @@
+package de.lucky44.raycasting.tools;
+
+import de.lucky44.raycasting.engine.world.WorldBinaryFormat;
+import de.lucky44.raycasting.engine.world.WorldData;
+import de.lucky44.raycasting.engine.world.WorldTextFormat;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Compiles the text format of a world (data.m, e/, pw/) into the binary format (world.rcw), chunk by chunk
+ * The World loads the compiled file instead of the text files as long as it is not older than them
+ * @author Nick Balischewski
+ */
+public final class WorldCompiler {
+
+    private WorldCompiler(){}
+
+    /**
+     * Compiles a world
+     * @param directory the directory of the world
+     * @param output the file to write
+     * @throws IOException gets thrown when the world couldn't be read or written
+     */
+    public static void compile(String directory, File output) throws IOException{
+        long startTime = System.nanoTime();
+        WorldData data = WorldTextFormat.read(directory);
+        long readTime = System.nanoTime();
+        WorldBinaryFormat.write(data, output);
+        long writeTime = System.nanoTime();
+
+        System.out.printf("Compiled %s (%dx%d, %d chunks, %d entities, %d polywalls) to %s in %.1f ms (reading %.1f ms, writing %.1f ms)%n",
+                data.name, data.width, data.height, data.chunksX() * data.chunksY(), data.entities.size(), data.polyWalls.size(), output,
+                (writeTime - startTime) / 1e6, (readTime - startTime) / 1e6, (writeTime - readTime) / 1e6);
+    }
+
+    /**
+     * Usage: WorldCompiler worldDirectory [output.rcw]
+     * @param args the arguments
+     */
+    public static void main(String[] args){
+        if(args.length < 1){
+            System.out.println("Usage: WorldCompiler <worldDirectory> [output.rcw]");
+            return;
+        }
+
+        File output = args.length >= 2 ? new File(args[1]) : new File(args[0], WorldBinaryFormat.FILE_NAME);
+
+        try{
+            compile(args[0], output);
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not compile world " + args[0]);
+            e.printStackTrace();
+        }
+    }
+}
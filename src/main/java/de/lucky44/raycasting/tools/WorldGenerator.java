@@ -0,0 +1,349 @@
+package de.lucky44.raycasting.tools;
+
+import de.lucky44.raycasting.engine.math.vec2D;
+import de.lucky44.raycasting.engine.world.EntityData;
+import de.lucky44.raycasting.engine.world.PolyWallData;
+import de.lucky44.raycasting.engine.world.WorldBinaryFormat;
+import de.lucky44.raycasting.engine.world.WorldData;
+import de.lucky44.raycasting.engine.world.WorldTextFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates seeded stress worlds (mazes, open arenas and PolyWall-heavy maps) for benchmarking big maps
+ * The same arguments and seed always give the same world, so benchmark runs stay comparable
+ * Worlds get written in the text format and compiled right away (world.rcw), the tilemap is copied from the asset-world
+ * (system property raycaster.assets, "world" by default), so run it from the project root
+ * @author Nick Balischewski
+ */
+public final class WorldGenerator {
+
+    /**
+     * The layouts a world can be generated with
+     */
+    public enum Layout {
+        /**
+         * A maze without loops: corridors one cell wide, every wall cell gets a random texture
+         */
+        MAZE,
+        /**
+         * An open map with a border and scattered pillars (12% of the cells), PolyWalls are single random segments
+         */
+        ARENA,
+        /**
+         * An open map with only a border, PolyWalls are chains of up to 6 points winding through the map
+         */
+        POLYWALLS
+    }
+
+    /**
+     * The seed worlds are generated with if none is given, so all benchmark runs measure the same maps
+     */
+    public static final long DEFAULT_SEED = 44;
+    /**
+     * The biggest width and height of a generated map
+     */
+    public static final int MAX_SIZE = 8192;
+    /**
+     * The tiles of the wolfenstein tilemap usable as wall textures, the textures of a world cycle through them
+     */
+    private static final String[] TILES = {"wall", "wall_flag", "wood", "wall_slime", "brick_white", "brick_blue", "brick_yellow", "stone"};
+    /**
+     * The texture of every floor and ceiling cell (as long as there are that many textures)
+     */
+    private static final short FLOOR_TEXTURE = 3;
+    /**
+     * The share of the free cells of an arena which become a pillar (in percent)
+     */
+    private static final int PILLAR_PERCENT = 12;
+
+    private WorldGenerator(){}
+
+    /**
+     * Generates a world
+     * @param layout the layout of the map
+     * @param size the width and height of the map (5 - MAX_SIZE)
+     * @param polyWalls the amount of PolyWalls
+     * @param entities the amount of (static) entities, has to fit into the free cells
+     * @param textures the amount of textures (the tiles get reused once there are more textures than tiles)
+     * @param seed the seed
+     * @return the data of the world
+     */
+    public static WorldData generate(Layout layout, int size, int polyWalls, int entities, int textures, long seed){
+        if(size < 5 || size > MAX_SIZE)
+            throw new IllegalArgumentException("The size has to be between 5 and " + MAX_SIZE + ": " + size);
+        if(textures < 1 || textures > Short.MAX_VALUE)
+            throw new IllegalArgumentException("The amount of textures has to be between 1 and " + Short.MAX_VALUE + ": " + textures);
+
+        Random random = new Random(seed);
+        WorldData data = new WorldData();
+        data.name = layout.name().charAt(0) + layout.name().substring(1).toLowerCase(Locale.ROOT) + " " + size + "x" + size;
+        data.allocateLayers(size, size);
+        data.tileMaps.add("wolfenstein.png");
+        for(int i = 0; i < textures; i++){
+            data.textures.add("tilemap wolfenstein " + TILES[i % TILES.length]);
+        }
+        Arrays.fill(data.floorData, (short)Math.min(FLOOR_TEXTURE, textures));
+        Arrays.fill(data.roofData, (short)Math.min(FLOOR_TEXTURE, textures));
+
+        int center = size / 2;
+        switch(layout){
+            case MAZE -> center = generateMaze(data.wallData, size, textures, random);
+            case ARENA -> generateArena(data.wallData, size, textures, random);
+            case POLYWALLS -> generateArena(data.wallData, size, 0, random);
+        }
+        data.playerStartPos = new vec2D(center + 0.5, center + 0.5);
+
+        for(int i = 0; i < polyWalls; i++){
+            data.setPolyWall(i, layout == Layout.POLYWALLS ? randomChain(size, textures, random) : randomSegment(size, textures, random));
+        }
+        data.polyWallFiles = polyWalls;
+
+        for(int i = 0; i < entities; i++){
+            int x, y;
+            do{
+                x = 1 + random.nextInt(size - 2);
+                y = 1 + random.nextInt(size - 2);
+            } while(data.wallData[y * size + x] != 0);
+
+            data.setEntity(i, new EntityData("Barrel" + i, false, new vec2D(x + 0.5, y + 0.5), new vec2D(30, 30), 800,
+                    "tilemap wolfenstein barrel", new String[0]));
+        }
+        data.entityFiles = entities;
+
+        return data;
+    }
+
+    /**
+     * Fills the wall layer with a border and scattered pillars, the cells around the center stay free
+     * @param walls the wall layer
+     * @param size the width and height of the map
+     * @param textures the amount of textures, 0 for no pillars at all
+     * @param random the random source
+     */
+    private static void generateArena(short[] walls, int size, int textures, Random random){
+        int center = size / 2;
+
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                boolean border = x == 0 || y == 0 || x == size-1 || y == size-1;
+                boolean nearPlayer = Math.abs(x - center) <= 1 && Math.abs(y - center) <= 1;
+                if(border)
+                    walls[y * size + x] = 1;
+                else if(textures > 0 && !nearPlayer && random.nextInt(100) < PILLAR_PERCENT)
+                    walls[y * size + x] = (short)(1 + random.nextInt(textures));
+            }
+        }
+    }
+
+    /**
+     * Carves a maze into the wall layer (iterative backtracking, so big mazes don't overflow the stack)
+     * The rooms of the maze lie on the odd cells, the walls between them get carved away
+     * @param walls the wall layer
+     * @param size the width and height of the map
+     * @param textures the amount of textures
+     * @param random the random source
+     * @return the (odd) cell in the middle of the maze, where the player starts
+     */
+    private static int generateMaze(short[] walls, int size, int textures, Random random){
+        for(int y = 0; y < size; y++){
+            for(int x = 0; x < size; x++){
+                boolean border = x == 0 || y == 0 || x == size-1 || y == size-1;
+                walls[y * size + x] = border ? 1 : (short)(1 + random.nextInt(textures));
+            }
+        }
+
+        int rooms = (size - 1) / 2;
+        boolean[] visited = new boolean[rooms * rooms];
+        int[] stack = new int[rooms * rooms];
+        int[] neighbours = new int[4];
+
+        int start = rooms / 2 * rooms + rooms / 2;
+        int top = 0;
+        stack[top++] = start;
+        visited[start] = true;
+        walls[roomToCell(start, rooms, size)] = 0;
+
+        while(top > 0){
+            int room = stack[top - 1];
+            int roomX = room % rooms;
+            int roomY = room / rooms;
+
+            int count = 0;
+            if(roomX > 0 && !visited[room - 1])
+                neighbours[count++] = room - 1;
+            if(roomX < rooms - 1 && !visited[room + 1])
+                neighbours[count++] = room + 1;
+            if(roomY > 0 && !visited[room - rooms])
+                neighbours[count++] = room - rooms;
+            if(roomY < rooms - 1 && !visited[room + rooms])
+                neighbours[count++] = room + rooms;
+
+            if(count == 0){
+                top--;
+                continue;
+            }
+
+            int next = neighbours[random.nextInt(count)];
+            int cell = roomToCell(room, rooms, size);
+            int nextCell = roomToCell(next, rooms, size);
+            //the cell between two rooms lies exactly in the middle of them
+            walls[(cell + nextCell) / 2] = 0;
+            walls[nextCell] = 0;
+            visited[next] = true;
+            stack[top++] = next;
+        }
+
+        return rooms / 2 * 2 + 1;
+    }
+
+    /**
+     * @param room the index of a room of the maze
+     * @param rooms the amount of rooms per row
+     * @param size the width and height of the map
+     * @return the index of the cell of the room inside the wall layer
+     */
+    private static int roomToCell(int room, int rooms, int size){
+        return (room / rooms * 2 + 1) * size + room % rooms * 2 + 1;
+    }
+
+    /**
+     * Creates a PolyWall of one cell length at a random position and angle
+     * @param size the width and height of the map
+     * @param textures the amount of textures
+     * @param random the random source
+     * @return the PolyWall
+     */
+    private static PolyWallData randomSegment(int size, int textures, Random random){
+        double x = 1 + random.nextDouble() * (size - 3);
+        double y = 1 + random.nextDouble() * (size - 3);
+        double angle = random.nextDouble() * 2 * Math.PI;
+
+        return new PolyWallData(new vec2D[]{new vec2D(x, y), new vec2D(x + Math.cos(angle), y + Math.sin(angle))},
+                random.nextInt(textures), false, 0);
+    }
+
+    /**
+     * Creates a PolyWall of 2 - 6 points, every point turns at most 45° away from the last direction and stays inside the border
+     * @param size the width and height of the map
+     * @param textures the amount of textures
+     * @param random the random source
+     * @return the PolyWall
+     */
+    private static PolyWallData randomChain(int size, int textures, Random random){
+        vec2D[] points = new vec2D[2 + random.nextInt(5)];
+        double x = 1 + random.nextDouble() * (size - 2);
+        double y = 1 + random.nextDouble() * (size - 2);
+        double angle = random.nextDouble() * 2 * Math.PI;
+        points[0] = new vec2D(x, y);
+
+        for(int i = 1; i < points.length; i++){
+            angle += (random.nextDouble() - 0.5) * Math.PI / 2;
+            double length = 0.5 + random.nextDouble() * 1.5;
+            x = Math.max(1, Math.min(size - 1, x + Math.cos(angle) * length));
+            y = Math.max(1, Math.min(size - 1, y + Math.sin(angle) * length));
+            points[i] = new vec2D(x, y);
+        }
+
+        return new PolyWallData(points, random.nextInt(textures), random.nextBoolean(), 0);
+    }
+
+    /**
+     * Writes a generated world: the text format, the compiled world.rcw and the tilemap
+     * @param data the world
+     * @param directory the directory to write to
+     * @throws IOException gets thrown when a file couldn't be written or the tilemap couldn't be copied
+     */
+    public static void write(WorldData data, String directory) throws IOException{
+        Path tileMap = Path.of(directory, "t/tilemaps/wolfenstein");
+        Files.createDirectories(tileMap);
+
+        Path assets = Path.of(System.getProperty("raycaster.assets", "world"), "t/tilemaps/wolfenstein");
+        Files.copy(assets.resolve("wolfenstein.png"), tileMap.resolve("wolfenstein.png"), StandardCopyOption.REPLACE_EXISTING);
+        Files.copy(assets.resolve("wolfenstein.tilemap"), tileMap.resolve("wolfenstein.tilemap"), StandardCopyOption.REPLACE_EXISTING);
+
+        WorldTextFormat.write(data, directory);
+        //written last, so it is not older than the text files and gets loaded instead of them
+        WorldBinaryFormat.write(data, new File(directory, WorldBinaryFormat.FILE_NAME));
+    }
+
+    /**
+     * Generates a world into a new temporary directory (with the default seed)
+     * @param layout the layout of the map
+     * @param size the width and height of the map
+     * @param polyWalls the amount of PolyWalls
+     * @param entities the amount of entities
+     * @param textures the amount of textures
+     * @return the directory of the world
+     */
+    public static String generateTemporary(Layout layout, int size, int polyWalls, int entities, int textures){
+        try{
+            Path directory = Files.createTempDirectory("raycaster-bench-" + size + "-");
+            write(generate(layout, size, polyWalls, entities, textures, DEFAULT_SEED), directory.toString());
+            return directory.toString();
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Deletes a generated world with everything inside its directory (e.g. one of generateTemporary once the benchmark is done)
+     * @param directory the directory of the world
+     */
+    public static void delete(String directory){
+        try(Stream<Path> files = Files.walk(Path.of(directory))){
+            //the files of a directory before the directory itself
+            for(Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator){
+                Files.delete(file);
+            }
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Usage: WorldGenerator directory maze|arena|polywalls size [polyWalls] [entities] [textures] [seed]
+     * @param args the arguments
+     */
+    public static void main(String[] args){
+        if(args.length < 3){
+            System.out.println("Usage: WorldGenerator <directory> <maze|arena|polywalls> <size> [polyWalls] [entities] [textures] [seed]");
+            return;
+        }
+
+        Layout layout = Layout.valueOf(args[1].toUpperCase(Locale.ROOT));
+        int size = Integer.parseInt(args[2]);
+        int polyWalls = args.length >= 4 ? Integer.parseInt(args[3]) : 0;
+        int entities = args.length >= 5 ? Integer.parseInt(args[4]) : 0;
+        int textures = args.length >= 6 ? Integer.parseInt(args[5]) : 3;
+        long seed = args.length >= 7 ? Long.parseLong(args[6]) : DEFAULT_SEED;
+
+        try{
+            long startTime = System.nanoTime();
+            WorldData data = generate(layout, size, polyWalls, entities, textures, seed);
+            long generateTime = System.nanoTime();
+            write(data, args[0]);
+            long writeTime = System.nanoTime();
+
+            System.out.printf("Generated %s (%d polywalls, %d entities, %d textures, seed %d) to %s in %.1f ms (generating %.1f ms, writing %.1f ms)%n",
+                    data.name, data.polyWalls.size(), data.entities.size(), data.textures.size(), seed, args[0],
+                    (writeTime - startTime) / 1e6, (generateTime - startTime) / 1e6, (writeTime - generateTime) / 1e6);
+        }
+        catch(IOException e){
+            System.out.println("[ERROR] Could not generate world " + args[0]);
+            e.printStackTrace();
+        }
+    }
+}